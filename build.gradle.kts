@@ -31,6 +31,27 @@ java {
     }
 }
 
+// Classes that require a more recent JDK, packaged in the multi-release part of the jar
+val java21: SourceSet by sourceSets.creating {
+    java.srcDir("src/main/java21")
+}
+
+tasks.named<JavaCompile>(java21.compileJavaTaskName) {
+    javaCompiler.set(javaToolchains.compilerFor {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    })
+    options.release.set(21)
+}
+
+tasks.jar {
+    into("META-INF/versions/21") {
+        from(java21.output)
+    }
+    manifest {
+        attributes("Multi-Release" to "true")
+    }
+}
+
 tasks.test {
     useJUnitPlatform()
 
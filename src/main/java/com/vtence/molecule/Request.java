@@ -1,6 +1,7 @@
 package com.vtence.molecule;
 
 import com.vtence.molecule.helpers.Headers;
+import com.vtence.molecule.helpers.Lazy;
 import com.vtence.molecule.http.ContentType;
 import com.vtence.molecule.http.Host;
 import com.vtence.molecule.http.HttpMethod;
@@ -24,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import static com.vtence.molecule.http.HeaderNames.CONTENT_LENGTH;
 import static com.vtence.molecule.http.HeaderNames.HOST;
@@ -44,14 +46,15 @@ import static java.util.Collections.emptyMap;
  */
 public class Request {
 
-    private final Map<String, List<String>> parameters = new LinkedHashMap<>();
     private final Map<Object, Object> attributes = new HashMap<>();
-    private final List<BodyPart> parts = new ArrayList<>();
 
-    private final Headers headers;
+    private final Lazy<Headers> headers;
+    private final Lazy<Map<String, List<String>>> parameters;
+    private final Lazy<List<BodyPart>> parts;
 
     private Uri uri;
-    private String remoteHost;
+    private String normalizedPath;
+    private Supplier<String> remoteHost = () -> null;
     private String remoteIp;
     private int remotePort;
     private String protocol;
@@ -70,11 +73,34 @@ public class Request {
                    Headers headers,
                    Map<String, List<String>> parameters,
                    Collection<BodyPart> parts) {
+        this(method, uri, protocol, () -> headers, () -> parameters, () -> parts);
+    }
+
+    /**
+     * Creates a request whose headers, parameters and body parts are provided on demand.
+     * <p>
+     * Each source is consulted at most once, the first time the request needs it.
+     * This lets servers avoid copying headers or parsing form data that the application never reads.
+     * </p>
+     *
+     * @param method the request method
+     * @param uri the request uri
+     * @param protocol the request protocol
+     * @param headers the source of the request headers
+     * @param parameters the source of the query and form parameters
+     * @param parts the source of the multipart body parts
+     */
+    public Request(HttpMethod method,
+                   Uri uri,
+                   String protocol,
+                   Supplier<Headers> headers,
+                   Supplier<? extends Map<String, List<String>>> parameters,
+                   Supplier<? extends Collection<BodyPart>> parts) {
         this.method = method;
         this.uri = uri;
-        this.headers = headers;
-        this.parameters.putAll(parameters);
-        this.parts.addAll(parts);
+        this.headers = Lazy.of(headers);
+        this.parameters = Lazy.of(() -> copyOf(parameters.get()));
+        this.parts = Lazy.of(() -> new ArrayList<>(parts.get()));
         this.secure = Objects.equals(Scheme.from(uri), Scheme.HTTPS);
         this.protocol = protocol;
         this.body = InputStream.nullInputStream();
@@ -82,6 +108,12 @@ public class Request {
         this.timestamp = -1;
     }
 
+    private static Map<String, List<String>> copyOf(Map<String, List<String>> parameters) {
+        var copy = new LinkedHashMap<String, List<String>>();
+        parameters.forEach((name, values) -> copy.put(name, new ArrayList<>(values)));
+        return copy;
+    }
+
     /**
      * Creates an HTTP GET request with the given uri.
      *
@@ -170,16 +202,21 @@ public class Request {
      */
     public Request uri(Uri uri) {
         this.uri = uri;
+        this.normalizedPath = null;
         return this;
     }
 
     /**
      * Reads the path of this request. This is the normalized path.
+     * <p>
+     * The path is normalized the first time it is read, then kept until the URI changes.
+     * </p>
      *
      * @return the normalized path associated with this request's URI
      */
     public String path() {
-        return uri.normalize().path();
+        if (normalizedPath == null) normalizedPath = uri.normalize().path();
+        return normalizedPath;
     }
 
     /**
@@ -189,9 +226,26 @@ public class Request {
      */
     public Request path(String path) {
         this.uri = uri.path(path);
+        this.normalizedPath = isNormalized(path) ? path : null;
         return this;
     }
 
+    // An absolute path without empty, "." or ".." segments is left as is by normalization
+    private static boolean isNormalized(String path) {
+        if (path == null || !path.startsWith("/")) return false;
+        int start = 1;
+        for (int i = 1; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                int length = i - start;
+                if (length == 0 && i < path.length()) return false;
+                if (length == 1 && path.charAt(start) == '.') return false;
+                if (length == 2 && path.charAt(start) == '.' && path.charAt(start + 1) == '.') return false;
+                start = i + 1;
+            }
+        }
+        return true;
+    }
+
     /**
      * Reads the query part of this request's URI. The query string does not include the leading <code>?</code>.
      *
@@ -235,7 +289,7 @@ public class Request {
      * @return the remote client hostname
      */
     public String remoteHost() {
-        return remoteHost;
+        return remoteHost.get();
     }
 
     /**
@@ -244,7 +298,21 @@ public class Request {
      * @param hostName the new hostname
      */
     public Request remoteHost(String hostName) {
-        this.remoteHost = hostName;
+        this.remoteHost = () -> hostName;
+        return this;
+    }
+
+    /**
+     * Changes the hostname of the remote client of this request to one that is resolved on first access.
+     * <p>
+     * Servers use this to avoid a reverse DNS lookup on every request, when applications rarely
+     * ask for the remote hostname.
+     * </p>
+     *
+     * @param hostName the source of the hostname, consulted at most once
+     */
+    public Request remoteHost(Supplier<String> hostName) {
+        this.remoteHost = Lazy.of(hostName);
         return this;
     }
 
@@ -470,7 +538,7 @@ public class Request {
      * @param part the additional body part
      */
     public Request addPart(BodyPart part) {
-        parts.add(part);
+        parts.get().add(part);
         return this;
     }
 
@@ -487,7 +555,7 @@ public class Request {
      * @return the (possibly empty) list of body parts
      */
     public List<BodyPart> parts() {
-        return new ArrayList<>(parts);
+        return new ArrayList<>(parts.get());
     }
 
     /**
@@ -499,7 +567,7 @@ public class Request {
      * is not of type <code>multipart/form-data</code>
      */
     public BodyPart part(String name) {
-        for (BodyPart part : parts) {
+        for (BodyPart part : parts.get()) {
             if (part.name().equals(name)) return part;
         }
         return null;
@@ -515,7 +583,7 @@ public class Request {
      * @param name the name of the part(s) to remove
      */
     public Request removePart(String name) {
-        BodyPart[] copy = parts.toArray(new BodyPart[parts.size()]);
+        BodyPart[] copy = parts.get().toArray(new BodyPart[0]);
         for (BodyPart part : copy) {
             if (part.name().equals(name)) removePart(part);
         }
@@ -528,7 +596,7 @@ public class Request {
      * @param part the body part to remove
      */
     public Request removePart(BodyPart part) {
-        parts.remove(part);
+        parts.get().remove(part);
         return this;
     }
 
@@ -553,7 +621,7 @@ public class Request {
      * @return true if the header was set
      */
     public boolean hasHeader(String name) {
-        return headers.has(name);
+        return headers.get().has(name);
     }
 
     /**
@@ -569,7 +637,7 @@ public class Request {
      * @return the value of the header
      */
     public String header(String name) {
-        return headers.get(name);
+        return headers.get().get(name);
     }
 
     /**
@@ -582,7 +650,7 @@ public class Request {
      * @return a set containing all the header names sent, which might be empty
      */
     public Set<String> headerNames() {
-        return headers.names();
+        return headers.get().names();
     }
 
     /**
@@ -601,7 +669,7 @@ public class Request {
      * @return the list of values for that header
      */
     public List<String> headers(String name) {
-        return headers.list(name);
+        return headers.get().list(name);
     }
 
     /**
@@ -612,7 +680,7 @@ public class Request {
      * @param value the additional value for that header
      */
     public Request addHeader(String name, String value) {
-        headers.add(name, value);
+        headers.get().add(name, value);
         return this;
     }
 
@@ -623,7 +691,7 @@ public class Request {
      * @param value the value the header will have
      */
     public Request header(String name, String value) {
-        headers.put(name, value);
+        headers.get().put(name, value);
         return this;
     }
 
@@ -637,7 +705,7 @@ public class Request {
      * @param name the name of the header(s) to remove
      */
     public Request removeHeader(String name) {
-        headers.remove(name);
+        headers.get().remove(name);
         return this;
     }
 
@@ -708,7 +776,7 @@ public class Request {
      * @return the list of that parameter's values
      */
     public List<String> parameters(String name) {
-        return parameters.containsKey(name) ? new ArrayList<>(parameters.get(name)) : new ArrayList<>();
+        return parameters.get().containsKey(name) ? new ArrayList<>(parameters.get().get(name)) : new ArrayList<>();
     }
 
     /**
@@ -728,7 +796,7 @@ public class Request {
      * @return the set of parameter names
      */
     public Set<String> parameterNames() {
-        return new LinkedHashSet<>(parameters.keySet());
+        return new LinkedHashSet<>(parameters.get().keySet());
     }
 
     /**
@@ -747,7 +815,7 @@ public class Request {
      * @return a map containing all the request parameters
      */
     public Map<String, List<String>> allParameters() {
-        return Collections.unmodifiableMap(parameters);
+        return Collections.unmodifiableMap(parameters.get());
     }
 
     /**
@@ -758,10 +826,10 @@ public class Request {
      * @param value the additional parameter value
      */
     public Request addParameter(String name, String value) {
-        if (!parameters.containsKey(name)) {
-            parameters.put(name, new ArrayList<>());
+        if (!parameters.get().containsKey(name)) {
+            parameters.get().put(name, new ArrayList<>());
         }
-        parameters.get(name).add(value);
+        parameters.get().get(name).add(value);
         return this;
     }
 
@@ -771,7 +839,7 @@ public class Request {
      * @param name the name of the parameter to remove
      */
     public Request removeParameter(String name) {
-        parameters.remove(name);
+        parameters.get().remove(name);
         return this;
     }
 
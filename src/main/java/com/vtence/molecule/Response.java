@@ -149,6 +149,16 @@ public class Response {
         return headers.list(name);
     }
 
+    /**
+     * Performs the given action for each header value of this response, in order.
+     * A header with multiple values is passed once for each of its values.
+     *
+     * @param action the action to perform with the name and value of each header
+     */
+    public void forEachHeader(BiConsumer<String, String> action) {
+        headers.forEach(action);
+    }
+
     /**
      * Gets the value of the specified header of this response. The name is case insensitive.
      *
@@ -2,18 +2,41 @@ package com.vtence.molecule;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.time.Duration;
 
 public interface Server {
 
-    void run(Application app, ServerOption... options) throws IOException;
+    void run(Application app, ServerOption<?>... options) throws IOException;
 
-    void run(Application app, SSLContext context, ServerOption... options) throws IOException;
+    void run(Application app, SSLContext context, ServerOption<?>... options) throws IOException;
 
     void shutdown() throws IOException;
 
+    /**
+     * Shuts down gracefully: stops accepting connections, lets requests in flight complete,
+     * then shuts down. Requests still in flight when the timeout expires are aborted.
+     * <p>
+     * Servers that cannot drain requests shut down immediately.
+     * </p>
+     *
+     * @param timeout how long to wait for in-flight requests
+     */
+    default void shutdown(Duration timeout) throws IOException {
+        shutdown();
+    }
+
+    /**
+     * Returns the number of requests being processed, i.e. received but not completely responded to.
+     *
+     * @return the number of in-flight requests, or 0 if the server does not keep count
+     */
+    default int inFlightRequests() {
+        return 0;
+    }
+
     void reportErrorsTo(FailureReporter reporter);
 
     String host();
 
     int port();
-}
\ No newline at end of file
+}
@@ -1,15 +1,109 @@
 package com.vtence.molecule;
 
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
 /**
  * Server options, which might or might not be supported by the underlying server.
+ * <p>
+ * An option is either a flag that turns on a feature of the server, or a setting that carries a typed value.
+ * </p>
+ *
+ * @param <T> the type of value carried by the option
+ * @see ServerOptions
  */
-public enum ServerOption {
+public final class ServerOption<T> {
+    static final String WORKER_THREADS = "WORKER_THREADS";
+    static final String IO_THREADS = "IO_THREADS";
+    static final String QUEUE_SIZE = "QUEUE_SIZE";
+    static final String EXECUTOR = "EXECUTOR";
+
     /**
      * HTTP/2 support
      */
-    HTTP_2,
+    public static final ServerOption<Boolean> HTTP_2 = flag("HTTP_2");
     /**
      * Server internal logging
      */
-    LOGGING,
+    public static final ServerOption<Boolean> LOGGING = flag("LOGGING");
+    /**
+     * Non-blocking request dispatch, for applications that never block while handling requests
+     */
+    public static final ServerOption<Boolean> NON_BLOCKING = flag("NON_BLOCKING");
+
+    private final String name;
+    private final T value;
+
+    private ServerOption(String name, T value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    private static ServerOption<Boolean> flag(String name) {
+        return new ServerOption<>(name, true);
+    }
+
+    /**
+     * The number of worker threads processing requests.
+     *
+     * @param count the number of worker threads
+     */
+    public static ServerOption<Integer> workerThreads(int count) {
+        return new ServerOption<>(WORKER_THREADS, positive(count));
+    }
+
+    /**
+     * The number of threads handling network I/O.
+     *
+     * @param count the number of I/O threads
+     */
+    public static ServerOption<Integer> ioThreads(int count) {
+        return new ServerOption<>(IO_THREADS, positive(count));
+    }
+
+    /**
+     * The maximum number of requests waiting for a worker thread to become available.
+     *
+     * @param size the maximum number of queued requests
+     */
+    public static ServerOption<Integer> queueSize(int size) {
+        return new ServerOption<>(QUEUE_SIZE, positive(size));
+    }
+
+    /**
+     * The executor to process requests with, in place of the server worker threads.
+     *
+     * @param executor the executor that will run the application
+     */
+    public static ServerOption<Executor> executor(Executor executor) {
+        return new ServerOption<>(EXECUTOR, Objects.requireNonNull(executor, "executor"));
+    }
+
+    private static int positive(int value) {
+        if (value <= 0) throw new IllegalArgumentException("must be positive: " + value);
+        return value;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public T value() {
+        return value;
+    }
+
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ServerOption<?> other = (ServerOption<?>) o;
+        return name.equals(other.name) && value.equals(other.value);
+    }
+
+    public int hashCode() {
+        return Objects.hash(name, value);
+    }
+
+    public String toString() {
+        return name + "=" + value;
+    }
 }
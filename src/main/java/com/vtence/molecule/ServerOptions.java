@@ -0,0 +1,58 @@
+package com.vtence.molecule;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.Executor;
+
+import static com.vtence.molecule.ServerOption.EXECUTOR;
+import static com.vtence.molecule.ServerOption.IO_THREADS;
+import static com.vtence.molecule.ServerOption.QUEUE_SIZE;
+import static com.vtence.molecule.ServerOption.WORKER_THREADS;
+
+/**
+ * A typed view of the options a server is run with. When an option is given more than once, the last one wins.
+ */
+public final class ServerOptions {
+
+    private final Map<String, ServerOption<?>> options = new LinkedHashMap<>();
+
+    public static ServerOptions of(ServerOption<?>... options) {
+        var all = new ServerOptions();
+        for (ServerOption<?> option : options) {
+            all.options.put(option.name(), option);
+        }
+        return all;
+    }
+
+    private ServerOptions() {}
+
+    public boolean enabled(ServerOption<Boolean> flag) {
+        return flag.equals(options.get(flag.name()));
+    }
+
+    public OptionalInt workerThreads() {
+        return intValueOf(WORKER_THREADS);
+    }
+
+    public OptionalInt ioThreads() {
+        return intValueOf(IO_THREADS);
+    }
+
+    public OptionalInt queueSize() {
+        return intValueOf(QUEUE_SIZE);
+    }
+
+    public Optional<Executor> executor() {
+        return valueOf(EXECUTOR, Executor.class);
+    }
+
+    private OptionalInt intValueOf(String name) {
+        return valueOf(name, Integer.class).map(OptionalInt::of).orElse(OptionalInt.empty());
+    }
+
+    private <T> Optional<T> valueOf(String name, Class<T> type) {
+        return Optional.ofNullable(options.get(name)).map(ServerOption::value).map(type::cast);
+    }
+}
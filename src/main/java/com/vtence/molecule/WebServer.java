@@ -1,5 +1,6 @@
 package com.vtence.molecule;
 
+import com.vtence.molecule.lib.VirtualThreads;
 import com.vtence.molecule.middlewares.FilterMap;
 import com.vtence.molecule.middlewares.Router;
 import com.vtence.molecule.routing.RouteBuilder;
@@ -10,8 +11,11 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.security.GeneralSecurityException;
-import java.util.HashSet;
-import java.util.Set;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -25,9 +29,10 @@ public class WebServer {
 
     private final Server server;
     private final MiddlewareStack stack;
-    private final Set<ServerOption> options = new HashSet<>();
+    private final Map<String, ServerOption<?>> options = new LinkedHashMap<>();
 
     private SSLContext ssl;
+    private ExecutorService virtualThreads;
 
     /**
      * Creates a WebServer listening on the default interface (0.0.0.0) and port (8080).
@@ -97,15 +102,85 @@ public class WebServer {
      * Prefers to use HTTP/2 over HTTP/1.1 if the underlying server supports it.
      */
     public WebServer enableHTTP2() {
-        this.options.add(ServerOption.HTTP_2);
-        return this;
+        return option(ServerOption.HTTP_2);
+    }
+
+    /**
+     * Handles requests directly on the I/O threads of the underlying server, if it supports it, instead of
+     * handing them off to a worker thread.
+     * <p>
+     * This is only safe for applications that never block, i.e. that complete their responses asynchronously.
+     * </p>
+     */
+    public WebServer enableNonBlocking() {
+        return option(ServerOption.NON_BLOCKING);
     }
 
     /**
      * Activate the underlying server internal logging mechanism, if any exists.
      */
     public WebServer activateLogging() {
-        this.options.add(ServerOption.LOGGING);
+        return option(ServerOption.LOGGING);
+    }
+
+    /**
+     * Sets the number of worker threads the underlying server uses to process requests.
+     *
+     * @param count the number of worker threads
+     */
+    public WebServer workerThreads(int count) {
+        return option(ServerOption.workerThreads(count));
+    }
+
+    /**
+     * Sets the number of threads the underlying server uses to handle network I/O.
+     *
+     * @param count the number of I/O threads
+     */
+    public WebServer ioThreads(int count) {
+        return option(ServerOption.ioThreads(count));
+    }
+
+    /**
+     * Bounds the number of requests waiting for a worker thread to become available.
+     *
+     * @param size the maximum number of queued requests
+     */
+    public WebServer queueSize(int size) {
+        return option(ServerOption.queueSize(size));
+    }
+
+    /**
+     * Processes requests using the specified executor rather than the underlying server worker threads.
+     * The executor is not shut down when this WebServer stops.
+     *
+     * @param executor the executor to run the application
+     */
+    public WebServer executor(Executor executor) {
+        return option(ServerOption.executor(executor));
+    }
+
+    /**
+     * Processes each request on a new virtual thread. This is a good fit for applications that do blocking I/O,
+     * such as JDBC calls, under high concurrency.
+     * <p>
+     * <i>Note that virtual threads require Java 21 or later.</i>
+     * </p>
+     *
+     * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+     */
+    public WebServer useVirtualThreads() {
+        virtualThreads = VirtualThreads.newThreadPerTaskExecutor();
+        return executor(virtualThreads);
+    }
+
+    /**
+     * Sets an option on the underlying server. An option replaces any previous option of the same name.
+     *
+     * @param option the server option to set
+     */
+    public WebServer option(ServerOption<?> option) {
+        this.options.put(option.name(), option);
         return this;
     }
 
@@ -234,9 +309,9 @@ public class WebServer {
      */
     public Server start() throws IOException {
         if (ssl != null) {
-            server.run(stack.boot(), ssl, options.toArray(new ServerOption[0]));
+            server.run(stack.boot(), ssl, options.values().toArray(new ServerOption<?>[0]));
         } else {
-            server.run(stack.boot(), options.toArray(new ServerOption[0]));
+            server.run(stack.boot(), options.values().toArray(new ServerOption<?>[0]));
         }
         return server;
     }
@@ -247,6 +322,27 @@ public class WebServer {
      */
     public void stop() throws IOException {
         server.shutdown();
+        if (virtualThreads != null) virtualThreads.shutdown();
+    }
+
+    /**
+     * Stops this WebServer gracefully. The server stops accepting new connections and waits for the requests
+     * it is processing to complete, up to the given timeout, before it releases its resources.
+     *
+     * @param timeout how long to wait for in-flight requests to complete
+     */
+    public void stop(Duration timeout) throws IOException {
+        server.shutdown(timeout);
+        if (virtualThreads != null) virtualThreads.shutdown();
+    }
+
+    /**
+     * Returns the number of requests this WebServer is currently processing.
+     *
+     * @return the number of in-flight requests
+     */
+    public int inFlightRequests() {
+        return server.inFlightRequests();
     }
 
     /**
@@ -1,81 +1,189 @@
 package com.vtence.molecule.helpers;
 
+import com.vtence.molecule.http.HeaderNames;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
+/**
+ * Header fields, with case insensitive names.
+ * <p>
+ * Headers are kept in arrays in the order they were first set, one slot per name. A slot holds either a single
+ * value or, for repeated headers, a list of values. Names that match one of the {@link HeaderNames} constants
+ * are stored as that constant, so looking them up with the constant succeeds on an identity check.
+ * </p>
+ */
 public class Headers {
 
-    private final Map<String, List<String>> values = new HashMap<>();
-    private final Map<String, String> names = new LinkedHashMap<>();
+    private static final List<String> STANDARD_NAMES = loadStandardNames();
+    private static final Map<String, String> STANDARDIZED = standardized(STANDARD_NAMES);
+
+    private String[] names = new String[8];
+    // Each value is either a String or a List of Strings
+    private Object[] values = new Object[8];
+    private int size;
 
     public String get(String name) {
-        return has(name) ? Joiner.on(", ").join(values(name)) : null;
+        int index = indexOf(name);
+        if (index < 0) return null;
+        return values[index] instanceof String ? (String) values[index] : String.join(", ", valuesAt(index));
     }
 
     public List<String> list(String name) {
-        return new ArrayList<>(values(name));
+        int index = indexOf(name);
+        if (index < 0) return new ArrayList<>();
+        return values[index] instanceof String ? new ArrayList<>(List.of((String) values[index]))
+                                               : new ArrayList<>(valuesAt(index));
     }
 
     public boolean has(String name) {
-        return values.containsKey(name) && !list(name).isEmpty() ||
-               values.containsKey(canonicalForm(name)) && !list(canonicalForm(name)).isEmpty();
+        return indexOf(name) >= 0;
     }
 
     public int size() {
-        return values.size();
+        return size;
     }
 
     public Set<String> names() {
-        return new LinkedHashSet<>(names.values());
+        return new LinkedHashSet<>(Arrays.asList(names).subList(0, size));
     }
 
     public Map<String, String> all() {
         var headers = new LinkedHashMap<String, String>();
-        for (String name : names()) {
-            headers.put(name, get(name));
+        for (int i = 0; i < size; i++) {
+            headers.put(names[i], get(names[i]));
         }
         return headers;
     }
 
+    /**
+     * Performs the given action for each header value, in order, with names as they were last set.
+     *
+     * @param action the action to perform with the name and value of each header
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] instanceof String) {
+                action.accept(names[i], (String) values[i]);
+            } else {
+                for (String value : valuesAt(i)) {
+                    action.accept(names[i], value);
+                }
+            }
+        }
+    }
+
     public void put(String name, String value) {
-        List<String> all = values(name);
-        all.clear();
-        add(name, value);
+        if (value == null) {
+            remove(name);
+            return;
+        }
+        int index = indexOf(name);
+        if (index < 0) {
+            append(name, value);
+        } else {
+            names[index] = standardized(name);
+            values[index] = value;
+        }
     }
 
     public void add(String name, String value) {
         if (value == null) return;
-        values(name).add(value);
-        if (literalForm(name) != null && !literalForm(name).equals(name)) {
-            names.remove(literalForm(name));
+        int index = indexOf(name);
+        if (index < 0) {
+            append(name, value);
+            return;
+        }
+
+        names[index] = standardized(name);
+        if (values[index] instanceof String) {
+            var all = new ArrayList<String>(2);
+            all.add((String) values[index]);
+            values[index] = all;
         }
-        names.put(canonicalForm(name), name);
-        names.put(name, name);
+        valuesAt(index).add(value);
     }
 
     public void remove(String name) {
-        names.remove(literalForm(name));
-        names.remove(canonicalForm(name));
-        values.remove(canonicalForm(name));
+        int index = indexOf(name);
+        if (index < 0) return;
+        int moved = size - index - 1;
+        System.arraycopy(names, index + 1, names, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        size--;
+        names[size] = null;
+        values[size] = null;
     }
 
-    private String literalForm(String name) {
-        return names.get(canonicalForm(name));
+    private void append(String name, String value) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        names[size] = standardized(name);
+        values[size] = value;
+        size++;
     }
 
-    private String canonicalForm(String name) {
-        return name.toLowerCase();
+    private int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            if (names[i] == name) return i;
+        }
+        for (int i = 0; i < size; i++) {
+            if (names[i].equalsIgnoreCase(name)) return i;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> valuesAt(int index) {
+        return (List<String>) values[index];
+    }
+
+    private static String standardized(String name) {
+        return STANDARDIZED.getOrDefault(name, name);
+    }
+
+    /**
+     * The standard header names, which are the {@link HeaderNames} constants themselves.
+     * <p>
+     * Servers can resolve the names they read to these instances, so that lookups succeed on an identity check.
+     * </p>
+     *
+     * @return the constants of {@link HeaderNames}
+     */
+    public static List<String> standardNames() {
+        return STANDARD_NAMES;
+    }
+
+    private static List<String> loadStandardNames() {
+        var names = new ArrayList<String>();
+        for (Field field : HeaderNames.class.getFields()) {
+            if (field.getType() != String.class || !Modifier.isStatic(field.getModifiers())) continue;
+            try {
+                names.add((String) field.get(null));
+            } catch (IllegalAccessException cannotHappen) {
+                throw new AssertionError(cannotHappen);
+            }
+        }
+        return Collections.unmodifiableList(names);
     }
 
-    private List<String> values(String name) {
-        if (!values.containsKey(canonicalForm(name))) {
-            values.put(canonicalForm(name), new ArrayList<>());
+    private static Map<String, String> standardized(List<String> standardNames) {
+        var names = new HashMap<String, String>();
+        for (String name : standardNames) {
+            names.put(name, name);
         }
-        return values.get(canonicalForm(name));
+        return names;
     }
 }
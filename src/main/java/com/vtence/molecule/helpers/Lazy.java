@@ -0,0 +1,37 @@
+package com.vtence.molecule.helpers;
+
+import java.util.function.Supplier;
+
+/**
+ * A value computed on first access and remembered afterwards.
+ * <p>
+ * Like the request it is typically used with, a lazy value is not safe for concurrent access.
+ * </p>
+ *
+ * @param <T> the type of the value
+ */
+public final class Lazy<T> implements Supplier<T> {
+
+    private Supplier<? extends T> source;
+    private T value;
+
+    public static <T> Lazy<T> of(Supplier<? extends T> source) {
+        return new Lazy<>(source);
+    }
+
+    private Lazy(Supplier<? extends T> source) {
+        this.source = source;
+    }
+
+    public T get() {
+        if (source != null) {
+            value = source.get();
+            source = null;
+        }
+        return value;
+    }
+
+    public boolean evaluated() {
+        return source == null;
+    }
+}
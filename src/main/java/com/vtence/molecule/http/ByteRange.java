@@ -0,0 +1,148 @@
+package com.vtence.molecule.http;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A range of bytes of a representation, as requested in a <code>Range</code> header
+ * (see <a href="https://tools.ietf.org/html/rfc7233">RFC 7233</a>).
+ */
+public class ByteRange {
+    private static final String BYTES = "bytes";
+    // Past that, clients are more likely to be abusive than to be seeking
+    private static final int MAX_RANGES = 32;
+
+    private final long first;
+    private final long last;
+
+    /**
+     * Parses the ranges of a <code>Range</code> header against a representation of the given length.
+     * <p>
+     * Ranges that extend past the end of the representation are shortened, ranges that start past its end are
+     * dropped, and ranges that overlap or are contiguous are merged.
+     * </p>
+     *
+     * @param header the value of the <code>Range</code> header
+     * @param length the length of the complete representation
+     * @return the satisfiable ranges, which may be empty, or null if the header should be ignored
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        int equals = header.indexOf('=');
+        if (equals < 0 || !header.substring(0, equals).trim().equalsIgnoreCase(BYTES)) return null;
+
+        var ranges = new ArrayList<ByteRange>();
+        for (String spec : header.substring(equals + 1).split(",")) {
+            spec = spec.trim();
+            if (spec.isEmpty()) continue;
+            int dash = spec.indexOf('-');
+            if (dash < 0) return null;
+
+            long first, last;
+            try {
+                if (dash == 0) {
+                    long suffix = parseLength(spec.substring(1));
+                    if (suffix == 0) continue;
+                    first = Math.max(0, length - suffix);
+                    last = length - 1;
+                } else {
+                    first = parseLength(spec.substring(0, dash));
+                    if (dash == spec.length() - 1) {
+                        last = length - 1;
+                    } else {
+                        last = parseLength(spec.substring(dash + 1));
+                        if (last < first) return null;
+                        last = Math.min(last, length - 1);
+                    }
+                }
+            } catch (NumberFormatException invalid) {
+                return null;
+            }
+            if (first < length) ranges.add(new ByteRange(first, last));
+        }
+
+        var merged = coalesce(ranges);
+        return merged.size() > MAX_RANGES ? null : merged;
+    }
+
+    /**
+     * Formats the value of a <code>Content-Range</code> header that tells the length of the representation
+     * when no range could be satisfied.
+     *
+     * @param length the length of the complete representation
+     * @return the <code>Content-Range</code> header value
+     */
+    public static String unsatisfied(long length) {
+        return BYTES + " */" + length;
+    }
+
+    public ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    public long first() {
+        return first;
+    }
+
+    public long last() {
+        return last;
+    }
+
+    public long length() {
+        return last - first + 1;
+    }
+
+    /**
+     * Formats the value of a <code>Content-Range</code> header for this range.
+     *
+     * @param length the length of the complete representation
+     * @return the <code>Content-Range</code> header value
+     */
+    public String contentRange(long length) {
+        return BYTES + " " + first + "-" + last + "/" + length;
+    }
+
+    public String toString() {
+        return first + "-" + last;
+    }
+
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ByteRange range = (ByteRange) o;
+        return first == range.first && last == range.last;
+    }
+
+    public int hashCode() {
+        return 31 * Long.hashCode(first) + Long.hashCode(last);
+    }
+
+    private static long parseLength(String value) {
+        value = value.trim();
+        if (value.isEmpty() || value.charAt(0) == '+') throw new NumberFormatException(value);
+        long length = Long.parseLong(value);
+        if (length < 0) throw new NumberFormatException(value);
+        return length;
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) return ranges;
+        var sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(ByteRange::first));
+
+        var merged = new ArrayList<ByteRange>();
+        var current = sorted.get(0);
+        for (var next : sorted.subList(1, sorted.size())) {
+            if (next.first <= current.last + 1) {
+                current = new ByteRange(current.first, Math.max(current.last, next.last));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        // Keep the order the client asked for, unless ranges had to be merged
+        return merged.size() < ranges.size() ? merged : ranges;
+    }
+}
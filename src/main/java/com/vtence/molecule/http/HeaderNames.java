@@ -15,13 +15,14 @@ public interface HeaderNames {
     String CONTENT_RANGE = "Content-Range";
     String TRAILER = "Trailer";
     String TRANSFER_ENCODING = "Transfer-Encoding";
+    String CONNECTION = "Connection";
 
     String CACHE_CONTROL = "Cache-Control";
     String EXPECT = "Expect";
     String HOST = "Host";
     String MAX_FORWARDS = "Max-Forwards";
     String PRAGMA = "Pragma";
-    String RANGE = "RANGE";
+    String RANGE = "Range";
     String TE = "TE";
 
     String IF_MATCH = "If-Match";
@@ -64,4 +65,6 @@ public interface HeaderNames {
     String COOKIE = "Cookie";
 
     String STRICT_TRANSPORT_SECURITY = "Strict-Transport-Security";
+
+    String LAST_EVENT_ID = "Last-Event-ID";
 }
\ No newline at end of file
@@ -186,6 +186,11 @@ public final class HttpStatus {
     */
     public static final HttpStatus UPGRADE_REQUIRED = of(426, "Upgrade Required");
 
+    /**
+     * Indicates that the server is unwilling to process the request because its header fields are too large.
+     */
+    public static final HttpStatus REQUEST_HEADER_FIELDS_TOO_LARGE = of(431, "Request Header Fields Too Large");
+
     /**
      * Indicates that the server encountered an unexpected error and could not fulfill the request.
      */
@@ -16,6 +16,7 @@ public final class MimeTypes {
     public static final String JPEG = "image/jpeg";
     public static final String ICON = "image/x-icon";
     public static final String BINARY_DATA = "application/octet-stream";
+    public static final String EVENT_STREAM = "text/event-stream";
 
     private final Map<String, String> knownTypes = new HashMap<>();
 
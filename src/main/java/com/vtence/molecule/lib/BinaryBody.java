@@ -4,9 +4,10 @@ import com.vtence.molecule.Body;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
-public class BinaryBody implements Body {
+public class BinaryBody implements Body, ByteContent {
 
     private static final Body EMPTY = bytes(new byte[0]);
 
@@ -31,4 +32,8 @@ public class BinaryBody implements Body {
     public void writeTo(OutputStream out, Charset charset) throws IOException {
         out.write(content);
     }
+
+    public ByteBuffer[] buffers(Charset charset) {
+        return new ByteBuffer[] { ByteBuffer.wrap(content).asReadOnlyBuffer() };
+    }
 }
@@ -0,0 +1,178 @@
+package com.vtence.molecule.lib;
+
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of byte arrays for buffering content in memory.
+ * <p>
+ * Buffers come in size classes, which are powers of two from 4KB to 1MB. Each platform thread keeps a released
+ * buffer of each of the smaller classes for itself, and other released buffers go back to one of several shared
+ * stripes, up to a limit. Virtual threads usually live for a single request, so they use the stripes only.
+ * Larger buffers are allocated on demand and left to the garbage collector.
+ * </p>
+ * <p>
+ * Buffers must be released only once, and must not be used after they are released.
+ * </p>
+ */
+public class BufferPool {
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 20;
+    private static final int MAX_LOCAL_SHIFT = 16;
+    private static final int SIZE_CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+
+    private static final BufferPool SHARED = new BufferPool(Runtime.getRuntime().availableProcessors(), 16);
+
+    private final ThreadLocal<byte[][]> local = ThreadLocal.withInitial(() -> new byte[SIZE_CLASSES][]);
+    private final Stripe[] stripes;
+    private final int buffersPerStripe;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong outstandingBytes = new AtomicLong();
+
+    /**
+     * Returns the pool shared by the framework.
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param stripes the number of shared stripes, to spread contention among threads
+     * @param buffersPerStripe the number of buffers of each size class each stripe keeps
+     */
+    public BufferPool(int stripes, int buffersPerStripe) {
+        if (stripes <= 0) throw new IllegalArgumentException("stripes must be positive: " + stripes);
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.buffersPerStripe = buffersPerStripe;
+    }
+
+    /**
+     * Acquires a buffer of at least the given size.
+     *
+     * @param minSize the minimum size of the buffer
+     * @return a buffer to release once done with it
+     */
+    public byte[] acquire(int minSize) {
+        int sizeClass = sizeClassOf(minSize);
+        if (sizeClass >= SIZE_CLASSES) {
+            misses.increment();
+            return allocate(minSize);
+        }
+
+        byte[] buffer = null;
+        if (keptLocally(sizeClass)) {
+            byte[][] cached = local.get();
+            buffer = cached[sizeClass];
+            cached[sizeClass] = null;
+        }
+        if (buffer == null) buffer = stripe().poll(sizeClass);
+        if (buffer == null) {
+            misses.increment();
+            return allocate(1 << (sizeClass + MIN_SHIFT));
+        }
+
+        hits.increment();
+        outstandingBytes.addAndGet(buffer.length);
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer acquired from this pool.
+     *
+     * @param buffer the buffer to release
+     */
+    public void release(byte[] buffer) {
+        outstandingBytes.addAndGet(-buffer.length);
+        int sizeClass = sizeClassOf(buffer.length);
+        if (sizeClass >= SIZE_CLASSES || buffer.length != 1 << (sizeClass + MIN_SHIFT)) return;
+
+        if (keptLocally(sizeClass)) {
+            byte[][] cached = local.get();
+            if (cached[sizeClass] == null) {
+                cached[sizeClass] = buffer;
+                return;
+            }
+        }
+        stripe().offer(sizeClass, buffer, buffersPerStripe);
+    }
+
+    /**
+     * Returns the number of buffers that were reused.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of buffers that had to be allocated.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the proportion of acquired buffers that were reused, between 0 and 1.
+     */
+    public double hitRate() {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the total size of the buffers acquired and not yet released.
+     */
+    public long outstandingBytes() {
+        return outstandingBytes.get();
+    }
+
+    private byte[] allocate(int size) {
+        outstandingBytes.addAndGet(size);
+        return new byte[size];
+    }
+
+    // A buffer kept by a virtual thread would most likely never be used again
+    private static boolean keptLocally(int sizeClass) {
+        return sizeClass <= MAX_LOCAL_SHIFT - MIN_SHIFT && !VirtualThreads.isVirtual(Thread.currentThread());
+    }
+
+    private Stripe stripe() {
+        return stripes[(int) (Thread.currentThread().getId() % stripes.length)];
+    }
+
+    private static int sizeClassOf(int size) {
+        if (size <= 1 << MIN_SHIFT) return 0;
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    private static class Stripe {
+        private final ArrayDeque<?>[] buffers = new ArrayDeque<?>[SIZE_CLASSES];
+
+        Stripe() {
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                buffers[i] = new ArrayDeque<byte[]>();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private ArrayDeque<byte[]> buffersOf(int sizeClass) {
+            return (ArrayDeque<byte[]>) buffers[sizeClass];
+        }
+
+        public synchronized byte[] poll(int sizeClass) {
+            return buffersOf(sizeClass).pollFirst();
+        }
+
+        public synchronized void offer(int sizeClass, byte[] buffer, int limit) {
+            var available = buffersOf(sizeClass);
+            if (available.size() < limit) available.addFirst(buffer);
+        }
+    }
+}
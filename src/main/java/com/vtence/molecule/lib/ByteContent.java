@@ -0,0 +1,55 @@
+package com.vtence.molecule.lib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Content that makes up a body and is already available in memory.
+ * <p>
+ * Servers detect bodies that expose their content as buffers and write those buffers straight to the network -
+ * together with the response head, in a single gathering write where possible - rather than copying the content
+ * through an output stream.
+ * </p>
+ */
+public interface ByteContent {
+
+    /**
+     * Returns the content encoded in the given charset, as buffers ready to be read from.
+     * <p>
+     * Each call returns new buffers, which callers are free to consume.
+     * </p>
+     *
+     * @param charset the charset to encode the content with
+     * @return the buffers holding the content
+     */
+    ByteBuffer[] buffers(Charset charset);
+
+    /**
+     * Tells whether the content is worth holding in memory in its entirety when encoded in the given charset.
+     * <p>
+     * Servers only ask for the buffers of content that is. Other content is written as any other body,
+     * which lets large content be encoded gradually as it is written.
+     * </p>
+     *
+     * @param charset the charset to encode the content with
+     * @return true if the content should be written from its buffers
+     */
+    default boolean buffered(Charset charset) {
+        return true;
+    }
+
+    /**
+     * Writes the content encoded in the given charset to the given channel.
+     *
+     * @param target the channel to write the content to
+     * @param charset the charset to encode the content with
+     * @throws IOException if an I/O error occurs
+     */
+    default void writeTo(WritableByteChannel target, Charset charset) throws IOException {
+        for (ByteBuffer buffer : buffers(charset)) {
+            while (buffer.hasRemaining()) target.write(buffer);
+        }
+    }
+}
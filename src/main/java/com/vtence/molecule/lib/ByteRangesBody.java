@@ -0,0 +1,93 @@
+package com.vtence.molecule.lib;
+
+import com.vtence.molecule.Body;
+import com.vtence.molecule.http.ByteRange;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.vtence.molecule.http.HeaderNames.CONTENT_RANGE;
+import static com.vtence.molecule.http.HeaderNames.CONTENT_TYPE;
+import static com.vtence.molecule.lib.BinaryBody.bytes;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * A <code>multipart/byteranges</code> body, made of several ranges of a file.
+ * <p>
+ * Each part is written straight from the file, one range after the other.
+ * </p>
+ */
+public class ByteRangesBody implements Body {
+    private static final String CRLF = "\r\n";
+
+    private final File file;
+    private final String contentType;
+    private final List<ByteRange> ranges;
+    private final String boundary;
+
+    public ByteRangesBody(File file, String contentType, List<ByteRange> ranges, String boundary) {
+        this.file = file;
+        this.contentType = contentType;
+        this.ranges = ranges;
+        this.boundary = boundary;
+    }
+
+    /**
+     * Returns the content type of this body, which tells the boundary between parts.
+     */
+    public String contentType() {
+        return "multipart/byteranges; boundary=" + boundary;
+    }
+
+    public long size(Charset charset) {
+        long size = closingDelimiter().length();
+        for (ByteRange range : ranges) {
+            size += partHeader(range).length() + range.length() + CRLF.length();
+        }
+        return size;
+    }
+
+    public void writeTo(OutputStream out, Charset charset) throws IOException {
+        var channel = Channels.newChannel(out);
+        for (Body part : parts()) {
+            if (part instanceof FileRegion) ((FileRegion) part).transferTo(channel);
+            else part.writeTo(out, charset);
+        }
+    }
+
+    /**
+     * Returns the pieces of this body in the order they are written: the delimiters and headers of the parts
+     * as content in memory, and the ranges as regions of the file.
+     */
+    public List<Body> parts() {
+        var parts = new ArrayList<Body>();
+        String delimiter = "";
+        for (ByteRange range : ranges) {
+            parts.add(text(delimiter + partHeader(range)));
+            parts.add(new FileBody(file, range.first(), range.length()));
+            delimiter = CRLF;
+        }
+        parts.add(text(delimiter + closingDelimiter()));
+        return parts;
+    }
+
+    private static Body text(String text) {
+        return bytes(text.getBytes(ISO_8859_1));
+    }
+
+    private String partHeader(ByteRange range) {
+        return "--" + boundary + CRLF
+               + (contentType != null ? CONTENT_TYPE + ": " + contentType + CRLF : "")
+               + CONTENT_RANGE + ": " + range.contentRange(file.length()) + CRLF
+               + CRLF;
+    }
+
+    private String closingDelimiter() {
+        return "--" + boundary + "--" + CRLF;
+    }
+}
@@ -0,0 +1,182 @@
+package com.vtence.molecule.lib;
+
+import com.vtence.molecule.Request;
+import com.vtence.molecule.Response;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.vtence.molecule.http.HeaderNames.CACHE_CONTROL;
+import static com.vtence.molecule.http.HeaderNames.LAST_EVENT_ID;
+import static com.vtence.molecule.http.MimeTypes.EVENT_STREAM;
+
+/**
+ * Fans out server-sent events to all the clients listening.
+ * <p>
+ * Each client gets its own bounded {@link EventStream}, kept alive with periodic heartbeats.
+ * The most recent events that have an id are kept, so that clients that reconnect with a
+ * <code>Last-Event-ID</code> header can catch up on the events they missed.
+ * </p>
+ */
+public class EventBroadcaster implements Closeable {
+    private static final int DEFAULT_QUEUE_SIZE = 256;
+    private static final int DEFAULT_HISTORY_SIZE = 1024;
+    private static final Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    private final Set<EventStream> streams = ConcurrentHashMap.newKeySet();
+    private final Deque<ServerSentEvent> history = new ArrayDeque<>();
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final int queueSize;
+    private final int historySize;
+    private final ScheduledFuture<?> heartbeats;
+    private final boolean ownsThreads;
+
+    /**
+     * Creates a broadcaster that delivers events on daemon threads of its own, with default settings.
+     */
+    public static EventBroadcaster create() {
+        return new EventBroadcaster(heartbeatThread(), deliveryThreads(),
+                                    DEFAULT_QUEUE_SIZE, DEFAULT_HISTORY_SIZE, DEFAULT_HEARTBEAT_INTERVAL, true);
+    }
+
+    /**
+     * @param scheduler the scheduler that sends heartbeats
+     * @param executor the executor that writes events to clients, whose threads must be allowed to block
+     * @param queueSize the number of events a client can fall behind before it is dropped
+     * @param historySize the number of past events kept for clients that reconnect
+     * @param heartbeatInterval how often to send heartbeats to idle clients
+     */
+    public EventBroadcaster(ScheduledExecutorService scheduler, Executor executor,
+                            int queueSize, int historySize, Duration heartbeatInterval) {
+        this(scheduler, executor, queueSize, historySize, heartbeatInterval, false);
+    }
+
+    private EventBroadcaster(ScheduledExecutorService scheduler, Executor executor,
+                             int queueSize, int historySize, Duration heartbeatInterval, boolean ownsThreads) {
+        if (queueSize <= 0) throw new IllegalArgumentException("queue size must be positive: " + queueSize);
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.queueSize = queueSize;
+        this.historySize = historySize;
+        this.ownsThreads = ownsThreads;
+        long interval = heartbeatInterval.toMillis();
+        this.heartbeats = scheduler.scheduleAtFixedRate(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens an event stream for the client making the request, resuming after the last event it received, if any.
+     *
+     * @param request the request of the client
+     * @return the response that streams events to the client
+     */
+    public Response subscribe(Request request) {
+        return Response.ok()
+                       .contentType(EVENT_STREAM)
+                       .header(CACHE_CONTROL, "no-cache")
+                       .done(PublisherBody.publishing(open(request.header(LAST_EVENT_ID))));
+    }
+
+    /**
+     * Opens an event stream for a new client.
+     * <p>
+     * The client starts receiving events, beginning with those it missed, once it subscribes to the stream.
+     * </p>
+     *
+     * @param lastEventId the id of the last event the client received, or null
+     * @return the stream of events for the client
+     */
+    public EventStream open(String lastEventId) {
+        var stream = new EventStream(executor, queueSize);
+        stream.onSubscribe(() -> listen(stream, lastEventId))
+              .onClose(() -> streams.remove(stream));
+        return stream;
+    }
+
+    // Streams only get events once a client listens, so a response that is never sent leaves nothing behind
+    private void listen(EventStream stream, String lastEventId) {
+        synchronized (history) {
+            if (lastEventId != null) stream.replay(missedSince(lastEventId));
+            streams.add(stream);
+        }
+    }
+
+    private List<ServerSentEvent> missedSince(String lastEventId) {
+        var missed = new ArrayList<ServerSentEvent>();
+        boolean found = false;
+        for (ServerSentEvent event : history) {
+            if (found) missed.add(event);
+            else found = lastEventId.equals(event.id());
+        }
+        return missed;
+    }
+
+    /**
+     * Sends an event to all clients.
+     *
+     * @param event the event to send
+     */
+    public void publish(ServerSentEvent event) {
+        var content = event.encode();
+        synchronized (history) {
+            if (event.id() != null && historySize > 0) {
+                if (history.size() == historySize) history.removeFirst();
+                history.addLast(event);
+            }
+            for (EventStream stream : streams) {
+                stream.offer(content.duplicate());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of clients listening.
+     */
+    public int subscribers() {
+        return streams.size();
+    }
+
+    private void heartbeat() {
+        streams.forEach(EventStream::heartbeat);
+    }
+
+    /**
+     * Ends all event streams and stops sending heartbeats.
+     */
+    public void close() {
+        heartbeats.cancel(false);
+        streams.forEach(EventStream::close);
+        if (ownsThreads) {
+            scheduler.shutdown();
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private static ScheduledExecutorService heartbeatThread() {
+        return Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "event-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ExecutorService deliveryThreads() {
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "event-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
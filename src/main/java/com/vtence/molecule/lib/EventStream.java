@@ -0,0 +1,194 @@
+package com.vtence.molecule.lib;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The stream of events sent to a single client, published as the content of a response body.
+ * <p>
+ * Events queue up until the client is ready for them and are delivered by the given executor, so sending never
+ * blocks. The queue is bounded: a client that falls so far behind that its queue fills up is dropped, and is expected
+ * to reconnect and resume from the last event it received.
+ * </p>
+ * <p>
+ * A stream starts with a comment, so that servers send the response head as soon as the client subscribes,
+ * rather than with the first event.
+ * </p>
+ */
+public class EventStream implements Flow.Publisher<ByteBuffer> {
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(UTF_8);
+
+    private final Executor executor;
+    private final Queue<ByteBuffer> queue;
+    // Content delivered ahead of the queue once subscribed, outside of its bound
+    private final Queue<ByteBuffer> backlog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicBoolean ended = new AtomicBoolean();
+    private final List<Runnable> subscribeListeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Flow.Subscriber<? super ByteBuffer> subscriber;
+    private volatile boolean closed;
+    private volatile boolean dropped;
+    private volatile boolean terminated;
+
+    public EventStream(Executor executor, int capacity) {
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Queues an event for the client.
+     *
+     * @param event the event to send
+     * @return true if the event was queued, false if the stream is closed or the client was dropped
+     */
+    public boolean send(ServerSentEvent event) {
+        return offer(event.encode());
+    }
+
+    /**
+     * Sends a comment to keep the connection alive, unless events are waiting to be delivered.
+     *
+     * @return true if the stream is still open, false otherwise
+     */
+    public boolean heartbeat() {
+        return queue.isEmpty() && backlog.isEmpty() ? offer(ByteBuffer.wrap(HEARTBEAT)) : isOpen();
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Ends the stream once the events already queued have been delivered.
+     */
+    public void close() {
+        closed = true;
+        signal();
+    }
+
+    /**
+     * Runs the given action when a client subscribes to the stream, before any content is delivered to it.
+     */
+    public EventStream onSubscribe(Runnable action) {
+        subscribeListeners.add(action);
+        return this;
+    }
+
+    /**
+     * Runs the given action once the stream has ended, whether closed by the server or dropped
+     * or disconnected by the client.
+     */
+    public EventStream onClose(Runnable action) {
+        closeListeners.add(action);
+        if (ended.get()) action.run();
+        return this;
+    }
+
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                public void request(long n) {}
+
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("An event stream is for a single client"));
+            return;
+        }
+        backlog.add(ByteBuffer.wrap(HEARTBEAT));
+        subscribeListeners.forEach(Runnable::run);
+        subscriber.onSubscribe(new Subscription());
+        this.subscriber = subscriber;
+        signal();
+    }
+
+    // Sends events ahead of those queued, even if they would not fit in the queue
+    void replay(List<ServerSentEvent> events) {
+        events.forEach(event -> backlog.add(event.encode()));
+        signal();
+    }
+
+    boolean offer(ByteBuffer content) {
+        if (closed) return false;
+        if (!queue.offer(content)) {
+            dropped = true;
+            close();
+            return false;
+        }
+        signal();
+        return true;
+    }
+
+    private void signal() {
+        if (pending.getAndIncrement() != 0) return;
+        try {
+            executor.execute(this::deliver);
+        } catch (RejectedExecutionException shutdown) {
+            deliver();
+        }
+    }
+
+    // Only ever runs in a single thread at a time, so the subscriber is never called concurrently
+    private void deliver() {
+        int missed = 1;
+        do {
+            var subscriber = this.subscriber;
+            if (subscriber != null && !terminated) {
+                if (dropped) clear();
+                while (demand.get() > 0 && !terminated) {
+                    var content = backlog.poll();
+                    if (content == null) content = queue.poll();
+                    if (content == null) break;
+                    demand.decrementAndGet();
+                    subscriber.onNext(content);
+                }
+                if (closed && queue.isEmpty() && backlog.isEmpty() && !terminated) {
+                    terminated = true;
+                    subscriber.onComplete();
+                    end();
+                }
+            }
+            missed = pending.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void clear() {
+        backlog.clear();
+        queue.clear();
+    }
+
+    private void end() {
+        if (ended.getAndSet(true)) return;
+        closeListeners.forEach(Runnable::run);
+    }
+
+    private class Subscription implements Flow.Subscription {
+        public void request(long n) {
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            signal();
+        }
+
+        public void cancel() {
+            terminated = true;
+            closed = true;
+            clear();
+            end();
+        }
+    }
+}
@@ -2,32 +2,63 @@ package com.vtence.molecule.lib;
 
 import com.vtence.molecule.Body;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
-public class FileBody implements Body {
+public class FileBody implements Body, FileRegion {
     private final File file;
+    private final long position;
+    private final long count;
 
     public FileBody(File file) {
+        this(file, 0, -1);
+    }
+
+    /**
+     * Creates a body made of a region of a file.
+     *
+     * @param file the file to read from
+     * @param position the offset in the file the region starts at
+     * @param count the number of bytes in the region, or -1 for the rest of the file
+     */
+    public FileBody(File file, long position, long count) {
         this.file = file;
+        this.position = position;
+        this.count = count;
     }
 
     public File file() {
         return file;
     }
 
+    public Path path() {
+        return file.toPath();
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public long count() {
+        return count >= 0 ? count : file.length() - position;
+    }
+
     public long size(Charset charset) {
-        return file.length();
+        return count();
     }
 
     public void writeTo(OutputStream out, Charset charset) throws IOException {
-        try (var in = new BufferedInputStream(new FileInputStream(file))) {
-            in.transferTo(out);
+        if (position == 0 && count < 0) {
+            try (var in = Files.newInputStream(path())) {
+                in.transferTo(out);
+            }
+        } else {
+            transferTo(Channels.newChannel(out));
         }
     }
 }
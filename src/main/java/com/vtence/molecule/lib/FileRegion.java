@@ -0,0 +1,53 @@
+package com.vtence.molecule.lib;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A region of a file that makes up the content of a body.
+ * <p>
+ * Servers detect bodies that expose a file region and transfer the region straight from the file system
+ * to the network - using <code>sendfile</code> where available - rather than copying it through the heap.
+ * </p>
+ */
+public interface FileRegion {
+
+    Path path();
+
+    long position();
+
+    long count();
+
+    /**
+     * Transfers the content of this region to the given channel.
+     *
+     * @param target the channel to write the content to
+     * @throws IOException if an I/O error occurs
+     */
+    default void transferTo(WritableByteChannel target) throws IOException {
+        try (var file = FileChannel.open(path(), READ)) {
+            long position = position();
+            long end = position + count();
+            while (position < end) {
+                long transferred = file.transferTo(position, end - position, target);
+                if (transferred == 0 && position >= file.size()) throw new EOFException(path() + " was truncated");
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Indicates whether this region extends to the end of the file.
+     *
+     * @return true if the region ends with the file, false otherwise
+     */
+    default boolean toEndOfFile() throws IOException {
+        return position() + count() >= Files.size(path());
+    }
+}
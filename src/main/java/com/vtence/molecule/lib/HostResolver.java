@@ -0,0 +1,132 @@
+package com.vtence.molecule.lib;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Resolves the hostnames of remote clients in the background, keeping results in a bounded cache.
+ * <p>
+ * Lookups never block: until a name has been resolved, the IP address stands in for it.
+ * Closing the resolver stops the thread it created, if any. Once closed, IP addresses stand in for the names
+ * that were not resolved yet.
+ * </p>
+ */
+public class HostResolver implements Closeable {
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(5);
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final Executor executor;
+    private final Duration timeToLive;
+    private final Clock clock;
+    private final Map<String, Resolution> cache;
+    private final boolean ownsThread;
+
+    /**
+     * Creates a resolver that looks up names on a single daemon thread, with default cache settings.
+     * The thread is stopped when the resolver is closed.
+     */
+    public static HostResolver create() {
+        return new HostResolver(daemonThread(), DEFAULT_TIME_TO_LIVE, DEFAULT_CAPACITY, Clock.systemUTC(), true);
+    }
+
+    public HostResolver(Executor executor, Duration timeToLive, int capacity) {
+        this(executor, timeToLive, capacity, Clock.systemUTC());
+    }
+
+    public HostResolver(Executor executor, Duration timeToLive, int capacity, Clock clock) {
+        this(executor, timeToLive, capacity, clock, false);
+    }
+
+    private HostResolver(Executor executor, Duration timeToLive, int capacity, Clock clock, boolean ownsThread) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.executor = executor;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        this.ownsThread = ownsThread;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, Resolution> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Provides the hostname of the given address if it is known, starting its resolution otherwise.
+     *
+     * @param ip the IP address of the remote client
+     * @return the cached hostname, or the IP address itself while the name is being resolved
+     */
+    public String lookup(String ip) {
+        if (ip == null) return null;
+        return resolve(ip).getNow(ip);
+    }
+
+    /**
+     * Resolves the hostname of the given address asynchronously.
+     *
+     * @param ip the IP address of the remote client
+     * @return a future hostname, which is the IP address itself when the name cannot be resolved
+     */
+    public CompletableFuture<String> resolve(String ip) {
+        Instant now = clock.instant();
+        synchronized (cache) {
+            Resolution entry = cache.get(ip);
+            if (entry != null && now.isBefore(entry.expiration)) return entry.hostName;
+            Resolution fresh = new Resolution(startResolving(ip), now.plus(timeToLive));
+            cache.put(ip, fresh);
+            return fresh.hostName;
+        }
+    }
+
+    private CompletableFuture<String> startResolving(String ip) {
+        try {
+            return CompletableFuture.supplyAsync(() -> reverseLookup(ip), executor).exceptionally(error -> ip);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ip);
+        }
+    }
+
+    /**
+     * Stops the thread the resolver created. An executor given to the resolver is left to its owner.
+     */
+    public void close() {
+        if (ownsThread) ((ExecutorService) executor).shutdownNow();
+    }
+
+    protected String reverseLookup(String ip) {
+        try {
+            return InetAddress.getByName(ip).getHostName();
+        } catch (UnknownHostException e) {
+            return ip;
+        }
+    }
+
+    private static ExecutorService daemonThread() {
+        return Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "host-resolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static class Resolution {
+        final CompletableFuture<String> hostName;
+        final Instant expiration;
+
+        Resolution(CompletableFuture<String> hostName, Instant expiration) {
+            this.hostName = hostName;
+            this.expiration = expiration;
+        }
+    }
+}
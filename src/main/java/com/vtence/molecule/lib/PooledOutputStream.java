@@ -0,0 +1,110 @@
+package com.vtence.molecule.lib;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * An output stream that buffers content in memory, in buffers drawn from a {@link BufferPool}.
+ * <p>
+ * Closing the stream gives its buffer back to the pool, after which the content is no longer available.
+ * </p>
+ */
+public class PooledOutputStream extends OutputStream {
+    private static final int INITIAL_SIZE = 4096;
+
+    private final BufferPool pool;
+    private byte[] buffer;
+    private int count;
+
+    public PooledOutputStream() {
+        this(BufferPool.shared());
+    }
+
+    public PooledOutputStream(BufferPool pool) {
+        this(pool, INITIAL_SIZE);
+    }
+
+    public PooledOutputStream(BufferPool pool, int initialSize) {
+        this.pool = pool;
+        this.buffer = pool.acquire(initialSize);
+    }
+
+    public void write(int b) throws IOException {
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * Reads all the remaining content of the given input stream into this stream.
+     *
+     * @param in the input stream to read from
+     * @return this stream
+     * @throws IOException if an I/O error occurs
+     */
+    public PooledOutputStream readFrom(InputStream in) throws IOException {
+        ensureCapacity(count + 1);
+        int read;
+        while ((read = in.read(buffer, count, buffer.length - count)) != -1) {
+            count += read;
+            if (count == buffer.length) ensureCapacity(count + 1);
+        }
+        return this;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(content(), count);
+    }
+
+    public String toString(Charset charset) {
+        return new String(content(), 0, count, charset);
+    }
+
+    /**
+     * Updates the given digest with the content of this stream.
+     *
+     * @param digest the digest to update
+     */
+    public void digestTo(MessageDigest digest) {
+        digest.update(content(), 0, count);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(content(), 0, count);
+    }
+
+    public void close() {
+        if (buffer == null) return;
+        pool.release(buffer);
+        buffer = null;
+    }
+
+    private byte[] content() {
+        if (buffer == null) throw new IllegalStateException("stream is closed");
+        return buffer;
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if (buffer == null) throw new IOException("stream is closed");
+        if (size <= buffer.length) return;
+        if (size < 0) throw new OutOfMemoryError("content too large");
+
+        byte[] grown = pool.acquire(Math.max(size, buffer.length << 1));
+        System.arraycopy(buffer, 0, grown, 0, count);
+        pool.release(buffer);
+        buffer = grown;
+    }
+}
@@ -0,0 +1,100 @@
+package com.vtence.molecule.lib;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+
+/**
+ * A body whose content is published over time, as a stream of byte buffers.
+ * <p>
+ * Servers subscribe to the publisher once the response is committed, and release the request thread.
+ * They write each buffer as it is published, and request the next one only once the previous one has gone out
+ * to the client, so a publisher never gets ahead of the network.
+ * </p>
+ * <p>
+ * Buffers are written on the thread that publishes them, which must be allowed to block.
+ * </p>
+ */
+public class PublisherBody extends ChunkedBody {
+
+    private final Flow.Publisher<ByteBuffer> publisher;
+
+    public static PublisherBody publishing(Flow.Publisher<ByteBuffer> publisher) {
+        return new PublisherBody(publisher);
+    }
+
+    public PublisherBody(Flow.Publisher<ByteBuffer> publisher) {
+        this.publisher = publisher;
+    }
+
+    public Flow.Publisher<ByteBuffer> publisher() {
+        return publisher;
+    }
+
+    /**
+     * Subscribes to the publisher and writes the content to the given channel as it is published.
+     *
+     * @param target the channel to write the content to
+     * @return a future that completes once all content has been written,
+     * or completes exceptionally if publishing or writing fails
+     */
+    public CompletableFuture<Void> transferTo(WritableByteChannel target) {
+        var transfer = new Transfer(target);
+        publisher.subscribe(transfer);
+        return transfer.done;
+    }
+
+    public void writeTo(OutputStream out, Charset charset) throws IOException {
+        try {
+            transferTo(Channels.newChannel(out)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static class Transfer implements Flow.Subscriber<ByteBuffer> {
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final WritableByteChannel target;
+        private Flow.Subscription subscription;
+
+        public Transfer(WritableByteChannel target) {
+            this.target = target;
+        }
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        public void onNext(ByteBuffer content) {
+            if (done.isDone()) return;
+            try {
+                while (content.hasRemaining()) target.write(content);
+            } catch (IOException e) {
+                subscription.cancel();
+                done.completeExceptionally(e);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        public void onError(Throwable error) {
+            done.completeExceptionally(error);
+        }
+
+        public void onComplete() {
+            done.complete(null);
+        }
+    }
+}
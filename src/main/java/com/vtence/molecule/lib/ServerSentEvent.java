@@ -0,0 +1,92 @@
+package com.vtence.molecule.lib;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An event pushed to clients over an event stream
+ * (see <a href="https://html.spec.whatwg.org/multipage/server-sent-events.html">Server-Sent Events</a>).
+ */
+public class ServerSentEvent {
+
+    private final String data;
+    private String id;
+    private String name;
+    private Duration retry;
+
+    public static ServerSentEvent event(String data) {
+        return new ServerSentEvent(data);
+    }
+
+    public ServerSentEvent(String data) {
+        this.data = data;
+    }
+
+    public String data() {
+        return data;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Sets the id of this event, which clients send back in the <code>Last-Event-ID</code> header
+     * when they reconnect.
+     */
+    public ServerSentEvent id(String id) {
+        this.id = id;
+        return this;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Sets the type of this event. Events with no type are dispatched to the <code>message</code> listeners.
+     */
+    public ServerSentEvent name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public Duration retry() {
+        return retry;
+    }
+
+    /**
+     * Sets how long clients should wait before they reconnect, should the connection be lost.
+     */
+    public ServerSentEvent retry(Duration retry) {
+        this.retry = retry;
+        return this;
+    }
+
+    /**
+     * Encodes this event for the wire.
+     *
+     * @return a buffer holding the UTF-8 encoded event
+     */
+    public ByteBuffer encode() {
+        return ByteBuffer.wrap(toString().getBytes(UTF_8));
+    }
+
+    public String toString() {
+        var event = new StringBuilder();
+        if (id != null) field(event, "id", id);
+        if (name != null) field(event, "event", name);
+        if (retry != null) field(event, "retry", String.valueOf(retry.toMillis()));
+        for (String line : data.split("\r\n|\r|\n", -1)) {
+            field(event, "data", line);
+        }
+        return event.append('\n').toString();
+    }
+
+    private static void field(StringBuilder event, String name, String value) {
+        // A line break would end the field early
+        event.append(name).append(": ").append(value.replaceAll("[\r\n\u0000]", "")).append('\n');
+    }
+}
@@ -4,12 +4,37 @@ import com.vtence.molecule.Body;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 
-public class TextBody implements Body {
+import static java.nio.charset.CodingErrorAction.REPLACE;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A body of text.
+ * <p>
+ * The text is encoded once per charset and the encoded bytes are kept until more text is appended.
+ * Large bodies are never encoded as a whole: they are encoded chunk by chunk, straight to the output.
+ * </p>
+ */
+public class TextBody implements Body, ByteContent {
+
+    private static final int LARGE = 32 * 1024;
+    private static final int CHUNK_SIZE = 4 * 1024;
+    private static final ThreadLocal<Encoding> ENCODING = ThreadLocal.withInitial(Encoding::new);
 
     private final StringBuilder content = new StringBuilder();
 
+    private Charset encodedCharset;
+    private byte[] encoded;
+    private Charset sizedCharset;
+    private long size;
+
     public static TextBody text(String text) {
         return new TextBody().append(text);
     }
@@ -18,6 +43,8 @@ public class TextBody implements Body {
 
     public TextBody append(CharSequence text) {
         this.content.append(text);
+        this.encoded = null;
+        this.sizedCharset = null;
         return this;
     }
 
@@ -26,14 +53,147 @@ public class TextBody implements Body {
     }
 
     public long size(Charset charset) {
-        return content(charset).length;
+        if (charset.equals(sizedCharset)) return size;
+        size = large() ? measure(charset) : encode(charset).length;
+        sizedCharset = charset;
+        return size;
     }
 
-    private byte[] content(Charset charset) {
-        return text().getBytes(charset);
+    public void writeTo(OutputStream out, Charset charset) throws IOException {
+        if (buffered(charset)) out.write(encode(charset));
+        else encodeTo(out, charset);
     }
 
-    public void writeTo(OutputStream out, Charset charset) throws IOException {
-        out.write(content(charset));
+    public boolean buffered(Charset charset) {
+        return !large() || charset.equals(encodedCharset) && encoded != null;
+    }
+
+    public ByteBuffer[] buffers(Charset charset) {
+        return new ByteBuffer[] { ByteBuffer.wrap(encode(charset)).asReadOnlyBuffer() };
+    }
+
+    private boolean large() {
+        return content.length() > LARGE;
+    }
+
+    private byte[] encode(Charset charset) {
+        if (encoded == null || !charset.equals(encodedCharset)) {
+            encoded = text().getBytes(charset);
+            encodedCharset = charset;
+        }
+        return encoded;
+    }
+
+    private long measure(Charset charset) {
+        if (charset.equals(UTF_8)) return utf8Length(content);
+        if (charset.equals(ISO_8859_1) || charset.equals(US_ASCII)) return singleByteLength(content);
+
+        var counter = new CountingStream();
+        try {
+            encodeTo(counter, charset);
+        } catch (IOException cannotHappen) {
+            throw new AssertionError(cannotHappen);
+        }
+        return counter.count;
+    }
+
+    // Unpaired surrogates are replaced with a single byte, as in String#getBytes
+    private static long utf8Length(CharSequence text) {
+        long length = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) length += 1;
+            else if (c < 0x800) length += 2;
+            else if (!Character.isSurrogate(c)) length += 3;
+            else if (isSurrogatePair(text, i)) { length += 4; i++; }
+            else length += 1;
+        }
+        return length;
+    }
+
+    // A surrogate pair is replaced with a single byte
+    private static long singleByteLength(CharSequence text) {
+        long length = 0;
+        for (int i = 0, n = text.length(); i < n; i++, length++) {
+            if (isSurrogatePair(text, i)) i++;
+        }
+        return length;
+    }
+
+    private static boolean isSurrogatePair(CharSequence text, int index) {
+        return Character.isHighSurrogate(text.charAt(index))
+               && index + 1 < text.length()
+               && Character.isLowSurrogate(text.charAt(index + 1));
+    }
+
+    private void encodeTo(OutputStream out, Charset charset) throws IOException {
+        var encoding = ENCODING.get();
+        // Writing to the output could bring us back here, in which case we can't reuse the buffers
+        if (encoding.busy) encoding = new Encoding();
+        encoding.busy = true;
+        try {
+            encoding.encode(content, charset, out);
+        } finally {
+            encoding.busy = false;
+        }
+    }
+
+    private static class Encoding {
+        private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE * 4);
+        private CharsetEncoder encoder;
+        private boolean busy;
+
+        public void encode(StringBuilder text, Charset charset, OutputStream out) throws IOException {
+            var encoder = encoderFor(charset);
+            chars.clear().flip();
+            bytes.clear();
+
+            int position = 0;
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                // Keep what was left over, such as the first half of a surrogate pair
+                chars.compact();
+                int count = Math.min(chars.remaining(), text.length() - position);
+                text.getChars(position, position + count, chars.array(), chars.position());
+                chars.position(chars.position() + count).flip();
+                position += count;
+                endOfInput = position == text.length();
+
+                CoderResult result;
+                while ((result = encoder.encode(chars, bytes, endOfInput)).isOverflow()) {
+                    drain(out);
+                }
+                if (result.isError()) result.throwException();
+            }
+            while (encoder.flush(bytes).isOverflow()) {
+                drain(out);
+            }
+            drain(out);
+        }
+
+        private CharsetEncoder encoderFor(Charset charset) {
+            if (encoder == null || !encoder.charset().equals(charset)) {
+                encoder = charset.newEncoder().onMalformedInput(REPLACE).onUnmappableCharacter(REPLACE);
+            }
+            return encoder.reset();
+        }
+
+        private void drain(OutputStream out) throws IOException {
+            out.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+
+    private static class CountingStream extends OutputStream {
+        long count;
+
+        public void write(int b) {
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
     }
 }
@@ -0,0 +1,44 @@
+package com.vtence.molecule.lib;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Executors that run each task on a new virtual thread.
+ * <p>
+ * Virtual threads are only available from Java 21 onwards. This is the version of the class used by earlier
+ * versions of Java. The Java 21 version lives in the multi-release part of the jar.
+ * </p>
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {}
+
+    /**
+     * Indicates whether the running JVM supports virtual threads.
+     *
+     * @return true if virtual threads are supported, false otherwise
+     */
+    public static boolean supported() {
+        return false;
+    }
+
+    /**
+     * Indicates whether the given thread is a virtual thread.
+     *
+     * @param thread the thread to check
+     * @return true if the thread is virtual, false otherwise
+     */
+    public static boolean isVirtual(Thread thread) {
+        return false;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @return the new executor
+     * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+    }
+}
@@ -4,6 +4,7 @@ import com.vtence.molecule.Request;
 import com.vtence.molecule.Response;
 import com.vtence.molecule.http.HeaderNames;
 import com.vtence.molecule.http.HttpMethod;
+import com.vtence.molecule.lib.HostResolver;
 
 import java.time.Clock;
 import java.util.Locale;
@@ -17,9 +18,15 @@ public class ApacheCombinedLogger extends ApacheLogger {
         super(logger, clock, locale);
     }
 
+    @Override
+    public ApacheCombinedLogger resolveHostnames(HostResolver resolver) {
+        super.resolveHostnames(resolver);
+        return this;
+    }
+
     @Override
     protected Consumer<Response> logAccess(Request request) {
-        String remoteIp = request.remoteIp();
+        String remoteHost = remoteHostOf(request);
         HttpMethod method = request.method();
         String uri = request.uri().uri();
         String protocol = request.protocol();
@@ -28,7 +35,7 @@ public class ApacheCombinedLogger extends ApacheLogger {
 
         return response -> {
             String msg = String.format(COMBINED_LOG_FORMAT,
-                    remoteIp,
+                    remoteHost,
                     currentTime(),
                     method,
                     uri,
@@ -3,6 +3,7 @@ package com.vtence.molecule.middlewares;
 import com.vtence.molecule.Request;
 import com.vtence.molecule.Response;
 import com.vtence.molecule.http.HttpMethod;
+import com.vtence.molecule.lib.HostResolver;
 
 import java.time.Clock;
 import java.util.Locale;
@@ -16,16 +17,22 @@ public class ApacheCommonLogger extends ApacheLogger {
         super(logger, clock, locale);
     }
 
+    @Override
+    public ApacheCommonLogger resolveHostnames(HostResolver resolver) {
+        super.resolveHostnames(resolver);
+        return this;
+    }
+
     @Override
     protected Consumer<Response> logAccess(Request request) {
-        String remoteIp = request.remoteIp();
+        String remoteHost = remoteHostOf(request);
         HttpMethod method = request.method();
         String uri = request.uri().uri();
         String protocol = request.protocol().toUpperCase();
 
         return response -> {
             String msg = String.format(COMMON_LOG_FORMAT,
-                    remoteIp,
+                    remoteHost,
                     "-",
                     currentTime(),
                     method,
@@ -4,6 +4,7 @@ import com.vtence.molecule.Application;
 import com.vtence.molecule.Middleware;
 import com.vtence.molecule.Request;
 import com.vtence.molecule.Response;
+import com.vtence.molecule.lib.HostResolver;
 
 import java.time.Clock;
 import java.time.ZonedDateTime;
@@ -18,6 +19,7 @@ public abstract class ApacheLogger implements Middleware {
     protected final Logger logger;
     private final Clock clock;
     private final DateTimeFormatter formatter;
+    private HostResolver hostResolver;
 
     protected ApacheLogger(Logger logger, Clock clock, Locale locale) {
         this.logger = logger;
@@ -25,6 +27,17 @@ public abstract class ApacheLogger implements Middleware {
         this.formatter = DateTimeFormatter.ofPattern(DATE_FORMAT, locale).withZone(clock.getZone());
     }
 
+    /**
+     * Logs remote hostnames rather than IP addresses, as resolved in the background by the given resolver.
+     * Requests from clients whose name is not resolved yet are logged with their IP address.
+     *
+     * @param resolver the resolver to look up hostnames with
+     */
+    public ApacheLogger resolveHostnames(HostResolver resolver) {
+        this.hostResolver = resolver;
+        return this;
+    }
+
     public Application then(Application next) {
         return request -> {
             Consumer<Response> logAccess = logAccess(request);
@@ -34,6 +47,10 @@ public abstract class ApacheLogger implements Middleware {
 
     protected abstract Consumer<Response> logAccess(Request request);
 
+    protected String remoteHostOf(Request request) {
+        return hostResolver != null ? hostResolver.lookup(request.remoteIp()) : request.remoteIp();
+    }
+
     protected String nullToEmpty(String string) {
         return (string == null) ? "" : string;
     }
@@ -8,53 +8,61 @@ import com.vtence.molecule.Response;
 import com.vtence.molecule.http.AcceptEncoding;
 import com.vtence.molecule.http.ContentType;
 import com.vtence.molecule.http.MimeTypes;
-import com.vtence.molecule.lib.ChunkedBody;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPOutputStream;
 
+import static com.vtence.molecule.http.HeaderNames.ACCEPT_ENCODING;
 import static com.vtence.molecule.http.HeaderNames.CONTENT_ENCODING;
 import static com.vtence.molecule.http.HeaderNames.CONTENT_LENGTH;
+import static com.vtence.molecule.http.HeaderNames.VARY;
 import static com.vtence.molecule.http.HttpStatus.NOT_ACCEPTABLE;
+import static com.vtence.molecule.http.HttpStatus.PARTIAL_CONTENT;
+import static com.vtence.molecule.http.MimeTypes.EVENT_STREAM;
 import static com.vtence.molecule.http.MimeTypes.TEXT;
 import static com.vtence.molecule.middlewares.Compressor.Codings.IDENTITY;
 
 public class Compressor implements Middleware {
 
+    private static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
     private final Collection<String> compressibleTypes = new ArrayList<>();
+    private final Map<String, Integer> compressionLevels = new LinkedHashMap<>();
+    private final DeflaterPool deflaters = new DeflaterPool(POOL_SIZE);
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private long minimumSize = 0;
+    private ForkJoinPool parallelCompression;
+    private long parallelThreshold;
 
     enum Codings {
         GZIP {
-            public void encode(Response response) {
+            public void encode(Response response, Compressor compressor) {
                 response.removeHeader(CONTENT_LENGTH);
                 response.header(CONTENT_ENCODING, name().toLowerCase());
-                response.body(new GZipStream(response.body()));
+                response.body(compressor.deflate(response, true));
             }
         },
 
         DEFLATE {
-            public void encode(Response response) {
+            public void encode(Response response, Compressor compressor) {
                 response.removeHeader(CONTENT_LENGTH);
                 response.header(CONTENT_ENCODING, name().toLowerCase());
-                response.body(new DeflateStream(response.body()));
+                response.body(compressor.deflate(response, false));
             }
         },
 
         IDENTITY {
-            public void encode(Response response) {
+            public void encode(Response response, Compressor compressor) {
             }
         };
 
-        public abstract void encode(Response response);
+        public abstract void encode(Response response, Compressor compressor);
 
         public static String[] all() {
             var all = new ArrayList<String>();
@@ -63,57 +71,80 @@ public class Compressor implements Middleware {
             }
             return all.toArray(new String[0]);
         }
+    }
 
-        private static class GZipStream extends ChunkedBody {
-            private final Body body;
-
-            public GZipStream(Body body) {
-                this.body = body;
-            }
-
-            public void writeTo(OutputStream out, Charset charset) throws IOException {
-                var zip = new GZIPOutputStream(out);
-                try {
-                    body.writeTo(zip, charset);
-                } finally {
-                    zip.finish();
-                }
-            }
-
-            public void close() throws IOException {
-                body.close();
-            }
-        }
+    public Compressor compressibleTypes(String... mimeTypes) {
+        this.compressibleTypes.addAll(Arrays.asList(mimeTypes));
+        return this;
+    }
 
-        private static class DeflateStream extends ChunkedBody {
-            private final Body body;
+    /**
+     * Leaves responses smaller than the given size uncompressed, since compressing them would save
+     * little or even grow them. Responses of unknown size are always compressed.
+     *
+     * @param bytes the size below which responses are not compressed
+     */
+    public Compressor minimumSize(long bytes) {
+        this.minimumSize = bytes;
+        return this;
+    }
 
-            public DeflateStream(Body body) {
-                this.body = body;
-            }
+    /**
+     * Sets the compression level, from 1 (fastest) to 9 (smallest).
+     *
+     * @param level the compression level to use unless specified otherwise for the media type
+     */
+    public Compressor compressionLevel(int level) {
+        this.compressionLevel = checkLevel(level);
+        return this;
+    }
 
-            public void writeTo(OutputStream out, Charset charset) throws IOException {
-                var zlib = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
-                var deflate = new DeflaterOutputStream(out, zlib);
-                try {
-                    body.writeTo(deflate, charset);
-                } finally {
-                    deflate.finish();
-                    zlib.end();
-                }
-            }
+    /**
+     * Sets the compression level of content of the given media type, from 1 (fastest) to 9 (smallest).
+     * The media type may contain wildcards, as in <code>text/*</code>.
+     *
+     * @param mediaType the media type the level applies to
+     * @param level the compression level to use for that media type
+     */
+    public Compressor compressionLevel(String mediaType, int level) {
+        this.compressionLevels.put(mediaType, checkLevel(level));
+        return this;
+    }
 
-            public void close() throws IOException {
-                body.close();
-            }
-        }
+    /**
+     * Compresses large responses on several threads of the common fork/join pool.
+     *
+     * @param bytes the size above which responses are compressed in parallel
+     * @see #parallelAbove(long, ForkJoinPool)
+     */
+    public Compressor parallelAbove(long bytes) {
+        return parallelAbove(bytes, ForkJoinPool.commonPool());
     }
 
-    public Compressor compressibleTypes(String... mimeTypes) {
-        this.compressibleTypes.addAll(Arrays.asList(mimeTypes));
+    /**
+     * Compresses large responses on several threads of the given pool.
+     * <p>
+     * The content is split in blocks that are compressed concurrently and sent one after the other.
+     * Responses of unknown size are compressed in parallel as soon as they no longer fit in a single block.
+     * </p>
+     *
+     * @param bytes the size above which responses are compressed in parallel
+     * @param pool the pool that compresses the blocks
+     */
+    public Compressor parallelAbove(long bytes, ForkJoinPool pool) {
+        this.parallelThreshold = bytes;
+        this.parallelCompression = pool;
         return this;
     }
 
+    private static int checkLevel(int level) {
+        boolean valid = level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION;
+        if (!valid && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        return level;
+    }
+
     public Application then(Application next) {
         return request -> next.handle(request)
                               .whenSuccessful(compressResponse(selectBestAvailableEncodingFor(request)));
@@ -125,9 +156,10 @@ public class Compressor implements Middleware {
                 return;
             }
 
+            varyOnAcceptEncoding(response);
             if (bestEncoding != null) {
                 Codings coding = Codings.valueOf(bestEncoding.toUpperCase());
-                coding.encode(response);
+                coding.encode(response, this);
             } else {
                 notAcceptable(response);
             }
@@ -135,13 +167,64 @@ public class Compressor implements Middleware {
     }
 
     private boolean unqualified(Response response) {
-        return empty(response) || alreadyEncoded(response) || !compressible(response);
+        return empty(response) || tooSmall(response) || partial(response) || alreadyEncoded(response)
+               || eventStream(response) || !compressible(response);
+    }
+
+    // Whether we compress it or not, the response now depends on the encodings the client accepts
+    private void varyOnAcceptEncoding(Response response) {
+        for (String vary : response.headers(VARY)) {
+            for (String name : vary.split(",")) {
+                if (name.trim().equalsIgnoreCase(ACCEPT_ENCODING) || name.trim().equals("*")) return;
+            }
+        }
+        response.addHeader(VARY, ACCEPT_ENCODING);
+    }
+
+    private boolean tooSmall(Response response) {
+        if (minimumSize <= 0) return false;
+        long size = response.size();
+        return size >= 0 && size < minimumSize;
+    }
+
+    private Body deflate(Response response, boolean gzip) {
+        int level = compressionLevelOf(response);
+        if (compressInParallel(response)) {
+            return new ParallelDeflateStream(response.body(), deflaters, level, gzip, parallelCompression);
+        }
+        return new DeflateStream(response.body(), deflaters, level, gzip);
+    }
+
+    private boolean compressInParallel(Response response) {
+        if (parallelCompression == null) return false;
+        long size = response.size();
+        return size < 0 || size >= Math.max(parallelThreshold, ParallelDeflateStream.BLOCK_SIZE);
+    }
+
+    private int compressionLevelOf(Response response) {
+        var contentType = ContentType.of(response);
+        if (contentType == null) return compressionLevel;
+        for (var level : compressionLevels.entrySet()) {
+            if (MimeTypes.matches(contentType.mediaType(), level.getKey())) return level.getValue();
+        }
+        return compressionLevel;
+    }
+
+    // Ranges are ranges of the identity content
+    private boolean partial(Response response) {
+        return response.statusCode() == PARTIAL_CONTENT.code;
     }
 
     private boolean empty(Response response) {
         return response.empty();
     }
 
+    // Compressing would hold events back until enough of them fill the compression buffer
+    private boolean eventStream(Response response) {
+        var contentType = ContentType.of(response);
+        return contentType != null && MimeTypes.matches(contentType.mediaType(), EVENT_STREAM);
+    }
+
     private boolean alreadyEncoded(Response response) {
         String contentEncoding = response.header(CONTENT_ENCODING);
         return contentEncoding != null && !isIdentity(contentEncoding);
@@ -0,0 +1,66 @@
+package com.vtence.molecule.middlewares;
+
+import com.vtence.molecule.Body;
+import com.vtence.molecule.lib.ChunkedBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Deflates content with a pooled deflater, framing it as gzip if required.
+ */
+class DeflateStream extends ChunkedBody {
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+    private static final int BUFFER_SIZE = 8192;
+
+    protected final Body body;
+    protected final DeflaterPool deflaters;
+    protected final int level;
+    protected final boolean gzip;
+
+    public DeflateStream(Body body, DeflaterPool deflaters, int level, boolean gzip) {
+        this.body = body;
+        this.deflaters = deflaters;
+        this.level = level;
+        this.gzip = gzip;
+    }
+
+    public void writeTo(OutputStream out, Charset charset) throws IOException {
+        var deflater = deflaters.acquire(level);
+        try {
+            if (gzip) writeHeader(out);
+            var deflate = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+            var crc = new CRC32();
+            body.writeTo(gzip ? new CheckedOutputStream(deflate, crc) : deflate, charset);
+            deflate.finish();
+            if (gzip) writeTrailer(out, crc.getValue(), deflater.getBytesRead());
+        } finally {
+            deflaters.release(deflater);
+        }
+    }
+
+    public void close() throws IOException {
+        body.close();
+    }
+
+    protected void writeHeader(OutputStream out) throws IOException {
+        out.write(GZIP_HEADER);
+    }
+
+    protected void writeTrailer(OutputStream out, long crc, long size) throws IOException {
+        writeInt(out, crc);
+        writeInt(out, size);
+    }
+
+    // gzip numbers are little endian, and the size is modulo 2^32
+    private void writeInt(OutputStream out, long value) throws IOException {
+        for (int shift = 0; shift < 32; shift += 8) {
+            out.write((int) (value >>> shift) & 0xff);
+        }
+    }
+}
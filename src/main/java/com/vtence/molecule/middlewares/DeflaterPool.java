@@ -0,0 +1,45 @@
+package com.vtence.molecule.middlewares;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.zip.Deflater;
+
+/**
+ * Keeps raw (<code>nowrap</code>) deflaters for reuse, since each one holds native zlib state
+ * that is costly to set up and tear down.
+ */
+final class DeflaterPool {
+    private final Deque<Deflater> idle = new ArrayDeque<>();
+    private final int capacity;
+
+    public DeflaterPool(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public Deflater acquire(int level) {
+        Deflater deflater;
+        synchronized (idle) {
+            deflater = idle.pollFirst();
+        }
+        if (deflater == null) return new Deflater(level, true);
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    public void release(Deflater deflater) {
+        deflater.reset();
+        synchronized (idle) {
+            if (idle.size() < capacity) {
+                idle.addFirst(deflater);
+                return;
+            }
+        }
+        deflater.end();
+    }
+
+    public int idle() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+}
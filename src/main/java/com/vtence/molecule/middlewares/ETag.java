@@ -7,21 +7,90 @@ import com.vtence.molecule.Response;
 import com.vtence.molecule.helpers.HexEncoder;
 import com.vtence.molecule.http.HeaderNames;
 import com.vtence.molecule.http.HttpStatus;
+import com.vtence.molecule.lib.ByteContent;
+import com.vtence.molecule.lib.FileBody;
+import com.vtence.molecule.lib.PooledOutputStream;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.concurrent.CompletionException;
 
 import static com.vtence.molecule.http.HeaderNames.CACHE_CONTROL;
 import static com.vtence.molecule.http.HeaderNames.ETAG;
 import static com.vtence.molecule.lib.BinaryBody.bytes;
 
+/**
+ * Sets an <code>ETag</code> header on responses that have no validator yet.
+ * <p>
+ * The entity tag of a file is made from its size and modification time, without reading the file.
+ * Content already held in memory is hashed where it stands. Other bodies are rendered and hashed at the same
+ * time, then replaced with what was rendered, since the tag must be sent before the content.
+ * Generators can be registered for other types of bodies.
+ * </p>
+ */
 public class ETag implements Middleware {
 
     private static final String REVALIDATE = "max-age=0; private; no-cache";
     private final HexEncoder encoder = new HexEncoder();
+    private final Deque<Registration<?>> generators = new ArrayDeque<>();
+    private long maxSize = Long.MAX_VALUE;
+
+    /**
+     * Computes the entity tag of a type of body.
+     *
+     * @param <T> the type of body
+     */
+    @FunctionalInterface
+    public interface Generator<T extends Body> {
+
+        /**
+         * Computes the entity tag of the given body.
+         *
+         * @param body the body of the response
+         * @param charset the charset the body is encoded with
+         * @return the entity tag, quotes included, or null to leave the response without one
+         * @throws IOException if the body cannot be read
+         */
+        String etagOf(T body, Charset charset) throws IOException;
+    }
+
+    public ETag() {
+        generate(FileBody.class, ETag::fileTag);
+    }
+
+    /**
+     * Computes the entity tag of bodies of the given type with the given generator, instead of hashing their
+     * content. Generators registered last are consulted first.
+     *
+     * @param bodyType the type of bodies the generator applies to
+     * @param generator the generator of entity tags for these bodies
+     */
+    public <T extends Body> ETag generate(Class<T> bodyType, Generator<? super T> generator) {
+        generators.addFirst(new Registration<>(bodyType, generator));
+        return this;
+    }
+
+    /**
+     * Leaves bodies larger than the given size without an entity tag, rather than reading them to compute one.
+     * This does not apply to bodies that have a generator.
+     * <p>
+     * Note that bodies of unknown size still have to be rendered in full.
+     * </p>
+     *
+     * @param bytes the size above which content is not hashed
+     */
+    public ETag maxSize(long bytes) {
+        this.maxSize = bytes;
+        return this;
+    }
 
     public Application then(Application next) {
         return request -> next.handle(request).whenSuccessful(this::computeETag);
@@ -29,28 +98,50 @@ public class ETag implements Middleware {
 
     private void computeETag(Response response) {
         if (!isCacheable(response)) return;
-        if (!hasCachingDirective(response)) response.header(CACHE_CONTROL, REVALIDATE);
 
         try {
-            byte[] output = render(response);
-            response.header(ETAG, etagOf(output));
-            response.body(bytes(output));
+            String etag = etagOf(response);
+            if (etag == null) return;
+            if (!hasCachingDirective(response)) response.header(CACHE_CONTROL, REVALIDATE);
+            response.header(ETAG, etag);
         } catch (Exception wontHappen) {
             throw new CompletionException(wontHappen);
         }
     }
 
-    private String etagOf(byte[] output) throws NoSuchAlgorithmException {
-        return "\"" + encoder.toHex(computeHash(output)) + "\"";
+    private String etagOf(Response response) throws IOException, NoSuchAlgorithmException {
+        Body body = response.body();
+        Charset charset = response.charset();
+        for (Registration<?> registration : generators) {
+            if (registration.appliesTo(body)) return registration.etagOf(body, charset);
+        }
+
+        long size = response.size();
+        if (size > maxSize) return null;
+
+        if (body instanceof ByteContent) {
+            return quote(digest((ByteContent) body, charset));
+        }
+
+        try (var output = render(response)) {
+            response.body(bytes(output.toByteArray()));
+            return quote(digest(output));
+        }
     }
 
-    private byte[] render(Response response) throws IOException {
-        try(var out = new ByteArrayOutputStream()) {
-            try(Body body = response.body()) {
-                body.writeTo(out, response.charset());
-            }
-            return out.toByteArray();
+    private String quote(byte[] hash) {
+        return "\"" + encoder.toHex(hash) + "\"";
+    }
+
+    private PooledOutputStream render(Response response) throws IOException {
+        var out = new PooledOutputStream();
+        try (Body body = response.body()) {
+            body.writeTo(out, response.charset());
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
         }
+        return out;
     }
 
     private boolean isCacheable(Response response) {
@@ -91,8 +182,52 @@ public class ETag implements Middleware {
         return response.header(CACHE_CONTROL);
     }
 
-    private byte[] computeHash(byte[] output) throws NoSuchAlgorithmException {
+    private byte[] digest(PooledOutputStream output) throws NoSuchAlgorithmException {
         var md5 = MessageDigest.getInstance("MD5");
-        return md5.digest(output);
+        output.digestTo(md5);
+        return md5.digest();
+    }
+
+    // Content in memory is hashed where it stands, or as it is encoded if it is too large to be held encoded
+    private byte[] digest(ByteContent content, Charset charset) throws IOException, NoSuchAlgorithmException {
+        var md5 = MessageDigest.getInstance("MD5");
+        if (content.buffered(charset)) {
+            for (ByteBuffer buffer : content.buffers(charset)) {
+                md5.update(buffer);
+            }
+        } else {
+            ((Body) content).writeTo(new DigestOutputStream(OutputStream.nullOutputStream(), md5), charset);
+        }
+        return md5.digest();
+    }
+
+    // A strong validator, as long as the file is not modified twice within the resolution of its modification time
+    private static String fileTag(FileBody body, Charset charset) throws IOException {
+        File file = body.file();
+        if (!file.isFile()) return null;
+
+        String tag = Long.toHexString(file.lastModified()) + "-" + Long.toHexString(file.length());
+        if (body.position() > 0 || !body.toEndOfFile()) {
+            tag += "-" + Long.toHexString(body.position()) + "-" + Long.toHexString(body.count());
+        }
+        return "\"" + tag + "\"";
+    }
+
+    private static class Registration<T extends Body> {
+        private final Class<T> bodyType;
+        private final Generator<? super T> generator;
+
+        Registration(Class<T> bodyType, Generator<? super T> generator) {
+            this.bodyType = bodyType;
+            this.generator = generator;
+        }
+
+        boolean appliesTo(Body body) {
+            return bodyType.isInstance(body);
+        }
+
+        String etagOf(Body body, Charset charset) throws IOException {
+            return generator.etagOf(bodyType.cast(body), charset);
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,26 +4,41 @@ import com.vtence.molecule.Application;
 import com.vtence.molecule.Request;
 import com.vtence.molecule.Response;
 import com.vtence.molecule.helpers.Joiner;
+import com.vtence.molecule.http.AcceptEncoding;
+import com.vtence.molecule.http.ByteRange;
 import com.vtence.molecule.http.HttpDate;
 import com.vtence.molecule.http.HttpMethod;
 import com.vtence.molecule.http.MimeTypes;
+import com.vtence.molecule.lib.ByteRangesBody;
 import com.vtence.molecule.lib.FileBody;
 
 import java.io.File;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
+import static com.vtence.molecule.http.HeaderNames.ACCEPT_ENCODING;
+import static com.vtence.molecule.http.HeaderNames.ACCEPT_RANGES;
 import static com.vtence.molecule.http.HeaderNames.ALLOW;
+import static com.vtence.molecule.http.HeaderNames.CONTENT_ENCODING;
+import static com.vtence.molecule.http.HeaderNames.CONTENT_RANGE;
 import static com.vtence.molecule.http.HeaderNames.IF_MODIFIED_SINCE;
+import static com.vtence.molecule.http.HeaderNames.IF_RANGE;
 import static com.vtence.molecule.http.HeaderNames.LAST_MODIFIED;
+import static com.vtence.molecule.http.HeaderNames.RANGE;
+import static com.vtence.molecule.http.HeaderNames.VARY;
 import static com.vtence.molecule.http.HttpMethod.GET;
 import static com.vtence.molecule.http.HttpMethod.HEAD;
 import static com.vtence.molecule.http.HttpStatus.METHOD_NOT_ALLOWED;
 import static com.vtence.molecule.http.HttpStatus.NOT_FOUND;
 import static com.vtence.molecule.http.HttpStatus.NOT_MODIFIED;
+import static com.vtence.molecule.http.HttpStatus.PARTIAL_CONTENT;
+import static com.vtence.molecule.http.HttpStatus.RANGE_NOT_SATISFIABLE;
 import static com.vtence.molecule.http.MimeTypes.TEXT;
 
 public class FileServer implements Application {
@@ -31,9 +46,12 @@ public class FileServer implements Application {
     private final File root;
     private final MimeTypes mediaTypes = MimeTypes.defaults();
     private final Map<String, String> headers = new HashMap<>();
+    private final Map<String, String> precompressed = new LinkedHashMap<>();
 
     private static final List<HttpMethod> ALLOWED_METHODS = Arrays.asList(GET, HEAD);
     private static final String ALLOW_HEADER = Joiner.on(", ").join(ALLOWED_METHODS);
+    private static final Map<String, String> COMPRESSED_EXTENSIONS = Map.of("gzip", ".gz", "br", ".br");
+    private static final String IDENTITY = "identity";
 
     public FileServer(File root) {
         this.root = root;
@@ -48,6 +66,22 @@ public class FileServer implements Application {
         return this;
     }
 
+    /**
+     * Serves compressed versions of files that sit next to them, when clients accept their encoding.
+     * A file compressed with <code>gzip</code> has a <code>.gz</code> extension,
+     * and a file compressed with <code>br</code> has a <code>.br</code> extension.
+     *
+     * @param encodings the supported encodings, in order of preference
+     */
+    public FileServer precompressed(String... encodings) {
+        for (String encoding : encodings) {
+            var extension = COMPRESSED_EXTENSIONS.get(encoding);
+            if (extension == null) throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+            precompressed.put(encoding, extension);
+        }
+        return this;
+    }
+
     public Response handle(Request request) throws Exception {
         if (!methodAllowed(request)) {
             return Response.of(METHOD_NOT_ALLOWED)
@@ -63,20 +97,82 @@ public class FileServer implements Application {
                            .done();
         }
 
-        if (notModifiedSince(lastTimeSeen(request), file)) {
-            return Response.of(NOT_MODIFIED)
-                           .done();
+        var encoding = selectEncoding(request, file);
+        var content = encoding != null ? compressed(file, encoding) : file;
+
+        if (notModifiedSince(lastTimeSeen(request), content)) {
+            var notModified = Response.of(NOT_MODIFIED);
+            addVariantHeaders(notModified, encoding);
+            return notModified.done();
         }
 
         var response = Response.ok();
-        addFileHeaders(response, file);
+        addFileHeaders(response, file.getName(), content);
+        addVariantHeaders(response, encoding);
         addCustomHeaders(response);
 
         if (head(request)) {
             return response.done();
         }
 
-        return response.done(new FileBody(file));
+        var ranges = requestedRanges(request, content);
+        if (ranges == null) {
+            return response.done(new FileBody(content));
+        }
+
+        if (ranges.isEmpty()) {
+            return response.status(RANGE_NOT_SATISFIABLE)
+                            .header(CONTENT_RANGE, ByteRange.unsatisfied(content.length()))
+                            .contentLength(0)
+                            .done();
+        }
+
+        if (ranges.size() == 1) {
+            var range = ranges.get(0);
+            return response.status(PARTIAL_CONTENT)
+                           .header(CONTENT_RANGE, range.contentRange(content.length()))
+                           .contentLength(range.length())
+                           .done(new FileBody(content, range.first(), range.length()));
+        }
+
+        var parts = new ByteRangesBody(content, response.contentType(), ranges, boundary());
+        return response.status(PARTIAL_CONTENT)
+                       .contentType(parts.contentType())
+                       .contentLength(parts.size(response.charset()))
+                       .done(parts);
+    }
+
+    private List<ByteRange> requestedRanges(Request request, File file) {
+        String range = request.header(RANGE);
+        if (range == null || !sameVersion(request.header(IF_RANGE), file)) return null;
+        return ByteRange.parse(range, file.length());
+    }
+
+    // Ranges only make sense if the client has part of the current version of the file
+    private boolean sameVersion(String condition, File file) {
+        return condition == null || HttpDate.format(file.lastModified()).equals(condition);
+    }
+
+    private String boundary() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    private String selectEncoding(Request request, File file) {
+        if (precompressed.isEmpty() || !request.hasHeader(ACCEPT_ENCODING)) return null;
+
+        var candidates = new ArrayList<String>();
+        for (String encoding : precompressed.keySet()) {
+            if (canServe(compressed(file, encoding))) candidates.add(encoding);
+        }
+        if (candidates.isEmpty()) return null;
+        candidates.add(IDENTITY);
+
+        var selected = AcceptEncoding.of(request).selectBestEncoding(candidates);
+        return IDENTITY.equals(selected) ? null : selected;
+    }
+
+    private File compressed(File file, String encoding) {
+        return new File(file.getPath() + precompressed.get(encoding));
     }
 
     private boolean canServe(File file) {
@@ -95,10 +191,18 @@ public class FileServer implements Application {
         return request.header(IF_MODIFIED_SINCE);
     }
 
-    private void addFileHeaders(Response response, File file) {
-        response.contentType(mediaTypes.guessFrom(file.getName()));
+    private void addFileHeaders(Response response, String name, File file) {
+        response.contentType(mediaTypes.guessFrom(name));
         response.header(LAST_MODIFIED, Instant.ofEpochMilli(file.lastModified()));
         response.contentLength(file.length());
+        response.header(ACCEPT_RANGES, "bytes");
+    }
+
+    // Caches need to know the content depends on the encodings the client accepts
+    private void addVariantHeaders(Response response, String encoding) {
+        if (precompressed.isEmpty()) return;
+        response.header(VARY, ACCEPT_ENCODING);
+        if (encoding != null) response.header(CONTENT_ENCODING, encoding);
     }
 
     private void addCustomHeaders(Response response) {
@@ -6,52 +6,186 @@ import com.vtence.molecule.Request;
 import com.vtence.molecule.routing.DynamicPath;
 import com.vtence.molecule.routing.WithBoundParameters;
 
-import java.util.*;
-import java.util.function.Function;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 
-import static com.vtence.molecule.Middleware.identity;
-import static com.vtence.molecule.lib.predicates.Requests.withDynamicPath;
-
+/**
+ * Runs requests through the last registered filter that matches them, before they reach the next application.
+ * <p>
+ * Each filter is composed with the next application once, when the filter map itself is composed, so filters
+ * that prepare their work in {@link Middleware#then(Application)} only do it once.
+ * Filters on a path prefix are kept in a prefix tree of path segments, so that a request only tries the filters
+ * whose static segments lead to its own path, along with the filters on other conditions.
+ * </p>
+ */
 public class FilterMap implements Middleware {
 
-    private final Map<Predicate<? super Request>, Middleware> filters = new LinkedHashMap<>();
+    private final List<Filter> filters = new ArrayList<>();
 
     public Application then(Application next) {
-        return request -> filterFor(request).then(next).handle(request);
+        var index = new Index();
+        for (int order = 0; order < filters.size(); order++) {
+            var filter = filters.get(order);
+            index.add(new Entry(order, filter, filter.middleware.then(next)));
+        }
+        return request -> index.appFor(request, next).handle(request);
     }
 
     public FilterMap map(String pathPrefix, Middleware filter) {
-        return map(withDynamicPath(DynamicPath.startingWith(pathPrefix)), filter);
+        filters.add(new Filter(DynamicPath.startingWith(pathPrefix), staticSegmentsOf(pathPrefix), filter));
+        return this;
     }
 
     public FilterMap map(Predicate<? super Request> request, Middleware filter) {
-        filters.put(request, filter);
+        // Mapping a condition again replaces its filter but keeps its precedence
+        for (int i = 0; i < filters.size(); i++) {
+            if (request.equals(filters.get(i).condition)) {
+                filters.set(i, new Filter(request, filter));
+                return this;
+            }
+        }
+        filters.add(new Filter(request, filter));
         return this;
     }
 
-    private Middleware filterFor(Request request) {
-        return possibleMatches().stream()
-                                .filter(m -> m.test(request))
-                                .findFirst()
-                                .map(addDynamicParametersTo(request))
-                                .map(filters::get)
-                                .orElse(identity());
+    // The leading segments of the prefix, up to its first dynamic segment
+    private static List<String> staticSegmentsOf(String pathPrefix) {
+        var segments = new ArrayList<String>();
+        for (String segment : pathPrefix.split("/")) {
+            if (segment.isEmpty()) continue;
+            if (segment.startsWith(":") || segment.contains("{")) break;
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    private static List<String> segmentsOf(String path) {
+        var segments = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > start) segments.add(path.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    // Entries are added in the order they were registered, and kept last first
+    private static class Index {
+        private final Node paths = new Node();
+        private final List<Entry> others = new ArrayList<>();
+
+        void add(Entry entry) {
+            if (entry.filter.path != null) {
+                paths.add(entry.filter.segments, entry);
+            } else {
+                others.add(0, entry);
+            }
+        }
+
+        Application appFor(Request request, Application next) {
+            var candidates = new ArrayList<List<Entry>>();
+            candidates.add(others);
+            String path = request.path();
+            if (path != null) paths.collect(segmentsOf(path), candidates);
+
+            // Each list of candidates is already last first, so merge them rather than sort them
+            int[] cursors = new int[candidates.size()];
+            while (true) {
+                int last = -1;
+                for (int i = 0; i < cursors.length; i++) {
+                    if (cursors[i] == candidates.get(i).size()) continue;
+                    if (last < 0 || order(candidates, cursors, i) > order(candidates, cursors, last)) last = i;
+                }
+                if (last < 0) return next;
+
+                var entry = candidates.get(last).get(cursors[last]++);
+                if (entry.filter.matches(request)) return entry.app;
+            }
+        }
+
+        private static int order(List<List<Entry>> candidates, int[] cursors, int list) {
+            return candidates.get(list).get(cursors[list]).order;
+        }
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<Entry> entries = new ArrayList<>();
+
+        void add(List<String> segments, Entry entry) {
+            var node = this;
+            for (String segment : segments) {
+                node = node.children.computeIfAbsent(segment, any -> new Node());
+            }
+            node.entries.add(0, entry);
+        }
+
+        // Every filter whose static segments lead to the path is a candidate, its dynamic segments are left to its path
+        void collect(List<String> path, List<List<Entry>> candidates) {
+            var node = this;
+            for (int depth = 0; node != null; depth++) {
+                if (!node.entries.isEmpty()) candidates.add(node.entries);
+                if (depth == path.size()) break;
+                node = node.children.get(path.get(depth));
+            }
+        }
     }
 
-    private Function<Predicate<? super Request>, Predicate<? super Request>> addDynamicParametersTo(Request request) {
-        return path -> {
-            if (path instanceof WithBoundParameters) {
-                var dynamicPath = (WithBoundParameters) path;
-                dynamicPath.addParametersTo(request);
+    private static class Filter {
+        private final Predicate<? super Request> condition;
+        private final DynamicPath path;
+        private final List<String> segments;
+        private final Middleware middleware;
+
+        Filter(Predicate<? super Request> condition, Middleware middleware) {
+            this.condition = condition;
+            this.path = null;
+            this.segments = List.of();
+            this.middleware = middleware;
+        }
+
+        Filter(DynamicPath path, List<String> segments, Middleware middleware) {
+            this.condition = null;
+            this.path = path;
+            this.segments = segments;
+            this.middleware = middleware;
+        }
+
+        boolean matches(Request request) {
+            if (path != null) return bindPath(request);
+
+            if (!condition.test(request)) return false;
+            if (condition instanceof WithBoundParameters) {
+                ((WithBoundParameters) condition).addParametersTo(request);
             }
-            return path;
-        };
+            return true;
+        }
+
+        // Matches and binds the dynamic segments of the path at once
+        private boolean bindPath(Request request) {
+            var parameters = path.bind(request.path());
+            if (parameters == null) return false;
+            for (var parameter : parameters.entrySet()) {
+                request.addParameter(parameter.getKey(), parameter.getValue());
+            }
+            return true;
+        }
     }
 
-    private List<Predicate<? super Request>> possibleMatches() {
-        var matchers = new ArrayList<>(filters.keySet());
-        Collections.reverse(matchers);
-        return matchers;
+    private static class Entry {
+        private final int order;
+        private final Filter filter;
+        private final Application app;
+
+        Entry(int order, Filter filter, Application app) {
+            this.order = order;
+            this.filter = filter;
+            this.app = app;
+        }
     }
-}
\ No newline at end of file
+}
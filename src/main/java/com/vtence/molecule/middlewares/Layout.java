@@ -11,9 +11,9 @@ import com.vtence.molecule.decoration.HtmlDocumentProcessor;
 import com.vtence.molecule.decoration.HtmlPageSelector;
 import com.vtence.molecule.decoration.LayoutTemplate;
 import com.vtence.molecule.decoration.Selector;
+import com.vtence.molecule.lib.PooledOutputStream;
 import com.vtence.molecule.templating.Template;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Map;
@@ -70,8 +70,9 @@ public class Layout implements Middleware {
     }
 
     private String render(Body body, Charset charset) throws IOException {
-        var buffer = new ByteArrayOutputStream();
-        body.writeTo(buffer, charset);
-        return buffer.toString(charset.name());
+        try (var buffer = new PooledOutputStream()) {
+            body.writeTo(buffer, charset);
+            return buffer.toString(charset);
+        }
     }
 }
\ No newline at end of file
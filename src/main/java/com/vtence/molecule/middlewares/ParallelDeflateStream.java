@@ -0,0 +1,165 @@
+package com.vtence.molecule.middlewares;
+
+import com.vtence.molecule.Body;
+import com.vtence.molecule.lib.BufferPool;
+import com.vtence.molecule.lib.PooledOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+import static java.util.zip.Deflater.NO_FLUSH;
+import static java.util.zip.Deflater.SYNC_FLUSH;
+
+/**
+ * Deflates content in blocks compressed in parallel, the way pigz does.
+ * <p>
+ * Each block is primed with the end of the previous block as a dictionary, so compression suffers little
+ * from the split, and ends on a byte boundary, so compressed blocks simply follow one another.
+ * Content that fits in a single block is compressed on the writing thread.
+ * </p>
+ * <p>
+ * Blocks and compressed blocks are drawn from the shared {@link BufferPool}. A block goes back to the pool once
+ * the next block, which uses it as a dictionary, has been compressed too.
+ * </p>
+ */
+class ParallelDeflateStream extends DeflateStream {
+    static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final BufferPool buffers = BufferPool.shared();
+    private final ForkJoinPool executor;
+
+    public ParallelDeflateStream(Body body, DeflaterPool deflaters, int level, boolean gzip, ForkJoinPool executor) {
+        super(body, deflaters, level, gzip);
+        this.executor = executor;
+    }
+
+    public void writeTo(OutputStream out, Charset charset) throws IOException {
+        if (gzip) writeHeader(out);
+        var blocks = new Blocks(out);
+        body.writeTo(blocks, charset);
+        blocks.finish();
+        if (gzip) writeTrailer(out, blocks.crc.getValue(), blocks.size);
+    }
+
+    private PooledOutputStream deflate(byte[] dictionary, byte[] block, int length, boolean last) {
+        var deflater = deflaters.acquire(level);
+        var buffer = buffers.acquire(BUFFER_SIZE);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, BLOCK_SIZE - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(block, 0, length);
+            if (last) deflater.finish();
+
+            var compressed = new PooledOutputStream(buffers, length / 2);
+            int count;
+            do {
+                count = deflater.deflate(buffer, 0, buffer.length, last ? NO_FLUSH : SYNC_FLUSH);
+                compressed.write(buffer, 0, count);
+            } while (last ? !deflater.finished() : count == buffer.length);
+            return compressed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffers.release(buffer);
+            deflaters.release(deflater);
+        }
+    }
+
+    private static class Deflation {
+        final byte[] input;
+        final CompletableFuture<PooledOutputStream> compressed;
+
+        Deflation(byte[] input, CompletableFuture<PooledOutputStream> compressed) {
+            this.input = input;
+            this.compressed = compressed;
+        }
+    }
+
+    private class Blocks extends OutputStream {
+        private final OutputStream out;
+        private final Deque<Deflation> pending = new ArrayDeque<>();
+        private final CRC32 crc = new CRC32();
+        private byte[] block = buffers.acquire(BLOCK_SIZE);
+        private byte[] previous;
+        // The input of the last block written, which the next block might still use as dictionary
+        private byte[] written;
+        private int count;
+        private long size;
+
+        public Blocks(OutputStream out) {
+            this.out = out;
+        }
+
+        public void write(int b) throws IOException {
+            if (count == BLOCK_SIZE) dispatch();
+            block[count++] = (byte) b;
+            crc.update(b);
+            size++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            crc.update(b, off, len);
+            size += len;
+            while (len > 0) {
+                if (count == BLOCK_SIZE) dispatch();
+                int chunk = Math.min(len, BLOCK_SIZE - count);
+                System.arraycopy(b, off, block, count, chunk);
+                count += chunk;
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        // A full block is never modified again, so it can serve as dictionary for the next one
+        private void dispatch() throws IOException {
+            var dictionary = previous;
+            var input = block;
+            pending.add(new Deflation(input, CompletableFuture.supplyAsync(
+                    () -> deflate(dictionary, input, BLOCK_SIZE, false), executor)));
+            previous = input;
+            block = buffers.acquire(BLOCK_SIZE);
+            count = 0;
+
+            // Don't hold more of the content in memory than the pool can compress at once
+            while (pending.size() > 2 * executor.getParallelism()) writeNext();
+            while (!pending.isEmpty() && pending.peekFirst().compressed.isDone()) writeNext();
+        }
+
+        public void finish() throws IOException {
+            // Meanwhile the pool is busy with the other blocks
+            try (var last = deflate(previous, block, count, true)) {
+                while (!pending.isEmpty()) writeNext();
+                last.writeTo(out);
+            }
+            release(written);
+            release(block);
+        }
+
+        private void writeNext() throws IOException {
+            var next = pending.removeFirst();
+            try (var compressed = next.compressed.join()) {
+                compressed.writeTo(out);
+            } catch (CompletionException e) {
+                throw new IOException("Compression failed", e.getCause());
+            }
+            // Blocks are compressed in order, so the block before this one is no longer used
+            release(written);
+            written = next.input;
+        }
+
+        private void release(byte[] buffer) {
+            if (buffer != null) buffers.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,604 @@
+package com.vtence.molecule.middlewares;
+
+import com.vtence.molecule.Application;
+import com.vtence.molecule.Body;
+import com.vtence.molecule.Middleware;
+import com.vtence.molecule.Request;
+import com.vtence.molecule.Response;
+import com.vtence.molecule.helpers.Headers;
+import com.vtence.molecule.http.ContentType;
+import com.vtence.molecule.http.HttpDate;
+import com.vtence.molecule.http.HttpMethod;
+import com.vtence.molecule.http.HttpStatus;
+import com.vtence.molecule.http.MimeTypes;
+import com.vtence.molecule.lib.ChunkedBody;
+import com.vtence.molecule.lib.PooledOutputStream;
+import com.vtence.molecule.lib.PublisherBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.vtence.molecule.http.HeaderNames.AGE;
+import static com.vtence.molecule.http.HeaderNames.AUTHORIZATION;
+import static com.vtence.molecule.http.HeaderNames.CACHE_CONTROL;
+import static com.vtence.molecule.http.HeaderNames.DATE;
+import static com.vtence.molecule.http.HeaderNames.EXPIRES;
+import static com.vtence.molecule.http.HeaderNames.IF_MATCH;
+import static com.vtence.molecule.http.HeaderNames.IF_MODIFIED_SINCE;
+import static com.vtence.molecule.http.HeaderNames.IF_NONE_MATCH;
+import static com.vtence.molecule.http.HeaderNames.IF_RANGE;
+import static com.vtence.molecule.http.HeaderNames.IF_UNMODIFIED_SINCE;
+import static com.vtence.molecule.http.HeaderNames.PRAGMA;
+import static com.vtence.molecule.http.HeaderNames.RANGE;
+import static com.vtence.molecule.http.HeaderNames.SET_COOKIE;
+import static com.vtence.molecule.http.HeaderNames.VARY;
+import static com.vtence.molecule.http.HttpMethod.GET;
+import static com.vtence.molecule.http.HttpMethod.HEAD;
+import static com.vtence.molecule.http.HttpStatus.GONE;
+import static com.vtence.molecule.http.HttpStatus.MOVED_PERMANENTLY;
+import static com.vtence.molecule.http.HttpStatus.MULTIPLE_CHOICES;
+import static com.vtence.molecule.http.HttpStatus.NON_AUTHORITATIVE_INFORMATION;
+import static com.vtence.molecule.http.HttpStatus.NOT_FOUND;
+import static com.vtence.molecule.http.HttpStatus.NOT_MODIFIED;
+import static com.vtence.molecule.http.HttpStatus.OK;
+import static com.vtence.molecule.http.MimeTypes.EVENT_STREAM;
+import static com.vtence.molecule.lib.BinaryBody.bytes;
+import static java.util.Collections.emptyList;
+
+/**
+ * Keeps rendered responses in memory and replays them for as long as they are fresh, the way a shared cache
+ * would (see <a href="https://tools.ietf.org/html/rfc7234">RFC 7234</a>).
+ * <p>
+ * Only responses to <code>GET</code> requests that tell how long they stay fresh are kept, either with the
+ * <code>s-maxage</code> or <code>max-age</code> directives of <code>Cache-Control</code> or with an
+ * <code>Expires</code> header. Responses that are <code>private</code>, <code>no-cache</code>,
+ * <code>no-store</code> or that set cookies are never kept. Responses that vary on request headers are kept
+ * once for each combination of those headers.
+ * </p>
+ * <p>
+ * Bodies are kept as they were encoded, so the cache sits best above the compressor, which tells it that
+ * responses vary on the encodings the client accepts, and below the conditional get middleware.
+ * Content of unknown size is kept as it is sent, unless it turns out to be larger than the largest response
+ * to keep.
+ * The cache is bounded by the number of bytes it holds, and forgets the least recently used resources first.
+ * </p>
+ */
+public class ResponseCache implements Middleware {
+
+    private static final Set<Integer> CACHEABLE_STATUSES = Set.of(
+            OK.code, NON_AUTHORITATIVE_INFORMATION.code, MULTIPLE_CHOICES.code,
+            MOVED_PERMANENTLY.code, NOT_FOUND.code, GONE.code);
+    private static final String[] CONDITIONAL_HEADERS = {
+            IF_MATCH, IF_NONE_MATCH, IF_MODIFIED_SINCE, IF_UNMODIFIED_SINCE, IF_RANGE, RANGE, CACHE_CONTROL, PRAGMA };
+    private static final int MAX_VARIANTS = 8;
+
+    private final Map<String, Resource> resources = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final long capacity;
+    private final Clock clock;
+    private long maxEntrySize;
+    private Executor revalidation;
+    private long storedBytes;
+
+    public ResponseCache(long capacity) {
+        this(capacity, Clock.systemUTC());
+    }
+
+    public ResponseCache(long capacity, Clock clock) {
+        this.capacity = capacity;
+        this.clock = clock;
+        this.maxEntrySize = capacity;
+    }
+
+    /**
+     * Leaves responses larger than the given size out of the cache, so a few large responses
+     * do not push out many small ones.
+     *
+     * @param bytes the size of the largest response to keep
+     */
+    public ResponseCache maxEntrySize(long bytes) {
+        this.maxEntrySize = Math.min(bytes, capacity);
+        return this;
+    }
+
+    /**
+     * Serves stale responses that allow it with <code>stale-while-revalidate</code>, while refreshing them
+     * on the given executor.
+     * <p>
+     * Without an executor, stale responses are never served.
+     * </p>
+     *
+     * @param executor the executor that refreshes stale responses in the background
+     */
+    public ResponseCache revalidateOn(Executor executor) {
+        this.revalidation = executor;
+        return this;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of bytes of all the responses currently cached.
+     */
+    public long storedBytes() {
+        synchronized (resources) {
+            return storedBytes;
+        }
+    }
+
+    public Application then(Application next) {
+        return request -> {
+            if (!cacheable(request)) {
+                return safe(request.method()) ? next.handle(request)
+                                              : next.handle(request).whenSuccessful(invalidate(keyOf(request)));
+            }
+
+            String key = keyOf(request);
+            var cached = lookup(key, request);
+            if (cached != null) {
+                long now = now();
+                if (cached.fresh(now) && acceptable(request, cached, now)) {
+                    hits.incrementAndGet();
+                    return replay(cached, now);
+                }
+                if (cached.staleWhileRevalidate(now) && revalidation != null && acceptable(request, cached, now)) {
+                    hits.incrementAndGet();
+                    if (cached.startRefresh()) {
+                        revalidate(next, key, copyOf(request), cached);
+                    }
+                    return replay(cached, now);
+                }
+            }
+            misses.incrementAndGet();
+
+            if (request.method() == HEAD) return next.handle(request);
+            return next.handle(request).whenSuccessful(response -> store(key, request, response));
+        };
+    }
+
+    private boolean cacheable(Request request) {
+        return (request.method() == GET || request.method() == HEAD)
+               && !request.hasHeader(AUTHORIZATION)
+               && !Directives.of(request.header(CACHE_CONTROL)).has("no-store");
+    }
+
+    private boolean safe(HttpMethod method) {
+        return method == GET || method == HEAD || method == HttpMethod.OPTIONS;
+    }
+
+    private boolean acceptable(Request request, Entry cached, long now) {
+        var directives = Directives.of(request.header(CACHE_CONTROL));
+        if (directives.has("no-cache") || Directives.of(request.header(PRAGMA)).has("no-cache")) return false;
+        long maxAge = directives.seconds("max-age");
+        return maxAge < 0 || cached.age(now) <= maxAge;
+    }
+
+    private String keyOf(Request request) {
+        String host = request.hostname();
+        String query = request.query();
+        return (host != null ? host : "") + request.path() + (query != null ? "?" + query : "");
+    }
+
+    private Entry lookup(String key, Request request) {
+        synchronized (resources) {
+            var resource = resources.get(key);
+            return resource != null ? resource.variantFor(request) : null;
+        }
+    }
+
+    private Response replay(Entry cached, long now) {
+        var response = Response.of(cached.status);
+        for (int i = 0; i < cached.headers.length; i += 2) {
+            response.addHeader(cached.headers[i], cached.headers[i + 1]);
+        }
+        response.header(AGE, String.valueOf(cached.age(now)));
+        return response.done(bytes(cached.body));
+    }
+
+    private void revalidate(Application next, String key, Request request, Entry stale) {
+        try {
+            revalidation.execute(() -> refresh(next, key, request, stale));
+        } catch (RejectedExecutionException busy) {
+            stale.refreshed();
+        }
+    }
+
+    private void refresh(Application next, String key, Request request, Entry stale) {
+        try {
+            next.handle(request)
+                .whenSuccessful(response -> store(key, request, response))
+                .whenComplete((response, error) -> {
+                    try {
+                        // Content of unknown size is only kept once it is sent
+                        if (error == null) discard(response);
+                        else close(response.body());
+                    } finally {
+                        stale.refreshed();
+                    }
+                });
+        } catch (Exception e) {
+            stale.refreshed();
+        }
+    }
+
+    private void store(String key, Request request, Response response) {
+        long now = now();
+        var directives = Directives.of(response.header(CACHE_CONTROL));
+        long lifetime = freshnessLifetime(directives, response, now);
+        long staleWhileRevalidate = Math.max(0, directives.seconds("stale-while-revalidate"));
+
+        if (!storable(directives, response) || lifetime + staleWhileRevalidate * 1000 <= 0) {
+            // The origin no longer lets us keep what we have, unless it merely answered a conditional request
+            if (response.statusCode() != NOT_MODIFIED.code) invalidate(key).accept(response);
+            return;
+        }
+
+        var vary = varyOf(response);
+        var headers = new ArrayList<String>();
+        response.forEachHeader((name, value) -> {
+            if (!name.equalsIgnoreCase(AGE)) {
+                headers.add(name);
+                headers.add(value);
+            }
+        });
+        var status = HttpStatus.of(response.statusCode(), response.statusDescription());
+        var varyValues = valuesOf(vary, request);
+        long age = Math.max(0, response.headerAsLong(AGE));
+        Consumer<byte[]> keep = body -> insert(key, vary, new Entry(status, headers.toArray(new String[0]), body,
+                                                                    varyValues, now, age, lifetime,
+                                                                    staleWhileRevalidate * 1000));
+
+        if (response.size() < 0) {
+            response.body(new Capture(response.body(), keep));
+            return;
+        }
+
+        byte[] body = render(response);
+        response.body(bytes(body));
+        if (body.length <= maxEntrySize) keep.accept(body);
+    }
+
+    private boolean storable(Directives directives, Response response) {
+        if (!CACHEABLE_STATUSES.contains(response.statusCode())) return false;
+        if (directives.has("no-store") || directives.has("no-cache") || directives.has("private")) return false;
+        if (response.hasHeader(SET_COOKIE)) return false;
+        if (Arrays.asList(varyOf(response)).contains("*")) return false;
+        if (response.body() instanceof PublisherBody || eventStream(response)) return false;
+        long size = response.size();
+        return size <= maxEntrySize;
+    }
+
+    private boolean eventStream(Response response) {
+        var contentType = ContentType.of(response);
+        return contentType != null && MimeTypes.matches(contentType.mediaType(), EVENT_STREAM);
+    }
+
+    private long freshnessLifetime(Directives directives, Response response, long now) {
+        long maxAge = directives.seconds("s-maxage");
+        if (maxAge < 0) maxAge = directives.seconds("max-age");
+        if (maxAge >= 0) return maxAge * 1000;
+
+        if (!response.hasHeader(EXPIRES)) return 0;
+        long expires = parseDate(response.header(EXPIRES));
+        long date = response.hasHeader(DATE) ? parseDate(response.header(DATE)) : now;
+        return expires - date;
+    }
+
+    private long parseDate(String value) {
+        try {
+            return HttpDate.parse(value).toEpochMilli();
+        } catch (IllegalArgumentException invalid) {
+            // An invalid date means the response has already expired
+            return Long.MIN_VALUE / 2;
+        }
+    }
+
+    private byte[] render(Response response) {
+        try (var out = new PooledOutputStream(); Body body = response.body()) {
+            body.writeTo(out, response.charset());
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void insert(String key, String[] vary, Entry entry) {
+        synchronized (resources) {
+            var resource = resources.get(key);
+            if (resource == null || !Arrays.equals(resource.vary, vary)) {
+                if (resource != null) storedBytes -= resource.bytes;
+                resource = new Resource(vary);
+                resources.put(key, resource);
+            }
+            storedBytes += resource.add(entry);
+
+            var eldest = resources.values().iterator();
+            while (storedBytes > capacity && eldest.hasNext()) {
+                storedBytes -= eldest.next().bytes;
+                eldest.remove();
+            }
+        }
+    }
+
+    private Consumer<Response> invalidate(String key) {
+        return response -> {
+            synchronized (resources) {
+                var resource = resources.remove(key);
+                if (resource != null) storedBytes -= resource.bytes;
+            }
+        };
+    }
+
+    private long now() {
+        return clock.millis();
+    }
+
+    private static String[] varyOf(Response response) {
+        var names = new ArrayList<String>();
+        for (String header : response.headers(VARY)) {
+            for (String name : header.split(",")) {
+                if (!name.isBlank()) names.add(name.trim().toLowerCase());
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    private static String[] valuesOf(String[] vary, Request request) {
+        var values = new String[vary.length];
+        for (int i = 0; i < vary.length; i++) {
+            values[i] = String.join(",", request.headers(vary[i]));
+        }
+        return values;
+    }
+
+    private static Request copyOf(Request request) {
+        var headers = new Headers();
+        for (String name : request.headerNames()) {
+            for (String value : request.headers(name)) headers.add(name, value);
+        }
+        for (String conditional : CONDITIONAL_HEADERS) headers.remove(conditional);
+
+        var copy = new Request(GET, request.uri(), request.protocol(), headers, request.allParameters(), emptyList());
+        copy.secure(request.secure())
+            .remoteIp(request.remoteIp())
+            .remotePort(request.remotePort())
+            .timestamp(request.timestamp());
+        request.attributes().forEach(copy::attribute);
+        return copy;
+    }
+
+    private static void discard(Response response) {
+        try (Body body = response.body()) {
+            body.writeTo(OutputStream.nullOutputStream(), response.charset());
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void close(Body body) {
+        try {
+            body.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Keeps a copy of the content as it is sent, until it grows too large to be kept
+    private class Capture extends ChunkedBody {
+        private final Body body;
+        private final Consumer<byte[]> keep;
+
+        Capture(Body body, Consumer<byte[]> keep) {
+            this.body = body;
+            this.keep = keep;
+        }
+
+        public void writeTo(OutputStream out, Charset charset) throws IOException {
+            var tee = new Tee(out, maxEntrySize);
+            try {
+                body.writeTo(tee, charset);
+                if (tee.complete()) keep.accept(tee.copy());
+            } finally {
+                tee.release();
+            }
+        }
+
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    private static class Tee extends OutputStream {
+        private final OutputStream out;
+        private final long limit;
+        private PooledOutputStream copy = new PooledOutputStream();
+
+        Tee(OutputStream out, long limit) {
+            this.out = out;
+            this.limit = limit;
+        }
+
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (capturing(1)) copy.write(b);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (capturing(len)) copy.write(b, off, len);
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        public void close() throws IOException {
+            out.close();
+        }
+
+        // Gives up on the copy as soon as it would be too large, but keeps sending the content
+        private boolean capturing(int count) {
+            if (copy == null) return false;
+            if (copy.size() + (long) count <= limit) return true;
+            release();
+            return false;
+        }
+
+        boolean complete() {
+            return copy != null;
+        }
+
+        byte[] copy() {
+            return copy.toByteArray();
+        }
+
+        void release() {
+            if (copy == null) return;
+            copy.close();
+            copy = null;
+        }
+    }
+
+    private static class Resource {
+        final String[] vary;
+        final LinkedList<Entry> variants = new LinkedList<>();
+        long bytes;
+
+        Resource(String[] vary) {
+            this.vary = vary;
+        }
+
+        Entry variantFor(Request request) {
+            var values = valuesOf(vary, request);
+            for (var variant : variants) {
+                if (Arrays.equals(variant.varyValues, values)) return variant;
+            }
+            return null;
+        }
+
+        // Returns the change in size of the resource
+        long add(Entry entry) {
+            long before = bytes;
+            variants.removeIf(variant -> {
+                boolean same = Arrays.equals(variant.varyValues, entry.varyValues);
+                if (same) bytes -= variant.size;
+                return same;
+            });
+            variants.addFirst(entry);
+            bytes += entry.size;
+            while (variants.size() > MAX_VARIANTS) {
+                bytes -= variants.removeLast().size;
+            }
+            return bytes - before;
+        }
+    }
+
+    private static class Entry {
+        final HttpStatus status;
+        final String[] headers;
+        final byte[] body;
+        final String[] varyValues;
+        final long storedAt;
+        final long initialAge;
+        final long freshUntil;
+        final long staleUntil;
+        final long size;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(HttpStatus status, String[] headers, byte[] body, String[] varyValues,
+              long storedAt, long initialAge, long lifetime, long staleWhileRevalidate) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.varyValues = varyValues;
+            this.storedAt = storedAt;
+            this.initialAge = initialAge;
+            this.freshUntil = storedAt + lifetime - initialAge * 1000;
+            this.staleUntil = freshUntil + staleWhileRevalidate;
+            this.size = body.length + lengthOf(headers) + lengthOf(varyValues);
+        }
+
+        long age(long now) {
+            return initialAge + Math.max(0, now - storedAt) / 1000;
+        }
+
+        boolean fresh(long now) {
+            return now < freshUntil;
+        }
+
+        boolean staleWhileRevalidate(long now) {
+            return now < staleUntil;
+        }
+
+        boolean startRefresh() {
+            return refreshing.compareAndSet(false, true);
+        }
+
+        void refreshed() {
+            refreshing.set(false);
+        }
+
+        private static long lengthOf(String[] strings) {
+            long length = 0;
+            for (String s : strings) length += s.length();
+            return length;
+        }
+    }
+
+    private static class Directives {
+        private static final Directives NONE = new Directives(Map.of());
+
+        private final Map<String, String> directives;
+
+        Directives(Map<String, String> directives) {
+            this.directives = directives;
+        }
+
+        // Be lenient and accept semicolons between directives, as in "public; max-age=60"
+        static Directives of(String header) {
+            if (header == null) return NONE;
+            var directives = new HashMap<String, String>();
+            for (String directive : header.split("[,;]")) {
+                int equals = directive.indexOf('=');
+                String name = (equals < 0 ? directive : directive.substring(0, equals)).trim().toLowerCase();
+                String value = equals < 0 ? "" : directive.substring(equals + 1).trim().replace("\"", "");
+                if (!name.isEmpty()) directives.putIfAbsent(name, value);
+            }
+            return new Directives(directives);
+        }
+
+        boolean has(String name) {
+            return directives.containsKey(name);
+        }
+
+        long seconds(String name) {
+            String value = directives.get(name);
+            if (value == null) return -1;
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException invalid) {
+                return -1;
+            }
+        }
+    }
+}
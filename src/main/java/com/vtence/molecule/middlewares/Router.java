@@ -3,15 +3,22 @@ package com.vtence.molecule.middlewares;
 import com.vtence.molecule.Application;
 import com.vtence.molecule.Request;
 import com.vtence.molecule.Response;
+import com.vtence.molecule.http.HttpMethod;
 import com.vtence.molecule.routing.Route;
 import com.vtence.molecule.routing.RouteBuilder;
+import com.vtence.molecule.routing.RouteIndex;
 import com.vtence.molecule.routing.RouteSet;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.StringJoiner;
 import java.util.function.Predicate;
 
+import static com.vtence.molecule.http.HeaderNames.ALLOW;
+import static com.vtence.molecule.http.HttpMethod.OPTIONS;
+import static com.vtence.molecule.http.HttpStatus.METHOD_NOT_ALLOWED;
+import static com.vtence.molecule.http.HttpStatus.NO_CONTENT;
+
 public class Router implements Application, RouteSet {
 
     public static Router draw(RouteBuilder routeBuilder) {
@@ -20,15 +27,21 @@ public class Router implements Application, RouteSet {
         return router;
     }
 
-    private final List<Route> routingTable = new ArrayList<>();
+    private final RouteIndex routingTable = new RouteIndex();
     private final Application fallback;
+    private final boolean lastResort;
 
     public Router() {
-        this(new NotFound());
+        this(new NotFound(), true);
     }
 
     public Router(final Application fallback) {
+        this(fallback, false);
+    }
+
+    private Router(Application fallback, boolean lastResort) {
         this.fallback = fallback;
+        this.lastResort = lastResort;
     }
 
     public Router route(Predicate<Request> condition, Application app) {
@@ -36,20 +49,36 @@ public class Router implements Application, RouteSet {
     }
 
     public Router route(Route route) {
-        routingTable.add(route);
+        routingTable.route(route);
         return this;
     }
 
+    /**
+     * Dispatches the request to the first route that accepts it.
+     * <p>
+     * When no route accepts the request but some routes match its path with other methods, a router without
+     * a fallback of its own answers <code>OPTIONS</code> requests itself, and other requests with
+     * <code>405 Method Not Allowed</code>. Both responses list the allowed methods in an <code>Allow</code> header.
+     * Otherwise the request goes to the fallback application, which might know the path with other methods.
+     * </p>
+     */
     public Response handle(Request request) throws Exception {
-        return routeFor(request).handle(request);
+        var route = routingTable.route(request);
+        if (route.isPresent()) return route.get().handle(request);
+        if (!lastResort) return fallback.handle(request);
+
+        var allowed = routingTable.methodsAllowed(request.path());
+        if (allowed.isEmpty() || allowed.contains(request.method())) return fallback.handle(request);
+
+        var response = request.method() == OPTIONS ? Response.of(NO_CONTENT) : Response.of(METHOD_NOT_ALLOWED);
+        return response.header(ALLOW, allow(allowed)).done();
     }
 
-    private Application routeFor(Request request) {
-        return routingTable.stream()
-                           .map(route -> route.route(request))
-                           .filter(Optional::isPresent)
-                           .map(Optional::get)
-                           .findFirst()
-                           .orElse(fallback);
+    private String allow(Set<HttpMethod> methods) {
+        var allowed = EnumSet.copyOf(methods);
+        allowed.add(OPTIONS);
+        var header = new StringJoiner(", ");
+        allowed.forEach(method -> header.add(method.name()));
+        return header.toString();
     }
 }
\ No newline at end of file
@@ -5,32 +5,32 @@ import com.vtence.molecule.Middleware;
 import com.vtence.molecule.Request;
 import com.vtence.molecule.Response;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-
+import java.util.Arrays;
+
+/**
+ * Dispatches requests to applications mounted on path prefixes, or to the next application when
+ * no mount point matches.
+ * <p>
+ * Mount points are kept in a prefix tree of characters, so that finding the most specific mount point
+ * takes a single walk along the request path. Mount points match whole path segments only, and the mount point
+ * is stripped from the path before the request reaches the mounted application.
+ * </p>
+ */
 public class URLMap implements Middleware {
 
-    private final List<Mount> mounts = new ArrayList<>();
+    private final Node mounts = new Node();
 
     public URLMap mount(String path, Application app) {
-        mounts.add(new Mount(path, app));
-        sortByMostSpecificPaths(mounts);
+        mounts.add(path, new Mount(path, app));
         return this;
     }
 
     public Application then(Application next) {
-        return request -> mountFor(request).orElse(new Mount(next)).handle(request);
-    }
-
-    private void sortByMostSpecificPaths(List<Mount> mounts) {
-        mounts.sort((left, right) -> right.mountPoint.length() - left.mountPoint.length());
-    }
-
-    private Optional<Mount> mountFor(Request request) {
-        return mounts.stream()
-                     .filter(m -> m.matches(request))
-                     .findFirst();
+        var fallback = new Mount(next);
+        return request -> {
+            var mount = mounts.mountFor(request.path());
+            return (mount != null ? mount : fallback).handle(request);
+        };
     }
 
     public interface MountPoint {
@@ -45,6 +45,53 @@ public class URLMap implements Middleware {
         }
     }
 
+    private static class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private Mount mount;
+
+        void add(String path, Mount mount) {
+            var node = this;
+            for (int i = 0; i < path.length(); i++) {
+                node = node.childOrCreate(path.charAt(i));
+            }
+            // Of two mounts on the same path, the first one wins
+            if (node.mount == null) node.mount = mount;
+        }
+
+        // The deepest mount point that ends on a segment boundary of the path is the most specific
+        Mount mountFor(String path) {
+            Mount found = null;
+            var node = this;
+            for (int i = 0; node != null; i++) {
+                if (node.mount != null && node.mount.matchesUpTo(path, i)) found = node.mount;
+                if (i == path.length()) break;
+                node = node.child(path.charAt(i));
+            }
+            return found;
+        }
+
+        private Node child(char label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == label) return children[i];
+            }
+            return null;
+        }
+
+        private Node childOrCreate(char label) {
+            var child = child(label);
+            if (child != null) return child;
+
+            child = new Node();
+            int size = labels.length;
+            labels = Arrays.copyOf(labels, size + 1);
+            children = Arrays.copyOf(children, size + 1);
+            labels[size] = label;
+            children[size] = child;
+            return child;
+        }
+    }
+
     private static class Mount implements Application, MountPoint {
 
         private final String mountPoint;
@@ -63,13 +110,15 @@ public class URLMap implements Middleware {
             return mountPoint;
         }
 
-        public boolean matches(Request request) {
-            return request.path().startsWith(mountPoint) && pathInfo(request).startsWith("/");
+        // Called once the path is known to start with the mount point
+        boolean matchesUpTo(String path, int end) {
+            return root() || end == path.length() || path.charAt(end) == '/';
         }
 
         public String pathInfo(Request request) {
-            if (mountPoint.equals("/")) return request.path();
-            String pathInfo = request.path().replaceFirst(mountPoint, "");
+            String path = request.path();
+            if (root()) return path;
+            String pathInfo = path.substring(mountPoint.length());
             return pathInfo.isEmpty() ? "/" : pathInfo;
         }
 
@@ -80,12 +129,16 @@ public class URLMap implements Middleware {
         }
 
         public String uri(String path) {
-            if (mountPoint.equals("/")) return path;
+            if (root()) return path;
             return mountPoint.concat(path.endsWith("/") ? stripTrailingSlash(path) : path);
         }
 
+        private boolean root() {
+            return mountPoint.equals("/");
+        }
+
         private String stripTrailingSlash(String path) {
-            return path.replaceAll("/$", "");
+            return path.substring(0, path.length() - 1);
         }
     }
-}
\ No newline at end of file
+}
@@ -5,10 +5,29 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
-
+import java.util.regex.Pattern;
+
+/**
+ * A path pattern made of static segments and of dynamic segments, such as <code>/products/:id</code>.
+ * <p>
+ * A dynamic segment can be constrained with a regular expression between braces, as in
+ * <code>:id{\d+}</code>, or with one of the types <code>int</code> and <code>uuid</code>, as in
+ * <code>:id{int}</code>. A path only matches if each of its constrained segments matches its constraint.
+ * </p>
+ * <p>
+ * The pattern is parsed once, when the dynamic path is created. Paths are then matched in a single walk,
+ * which also binds the values of the dynamic segments.
+ * </p>
+ */
 public class DynamicPath implements WithBoundParameters, Predicate<String> {
 
-    private final Path pattern;
+    private static final Map<String, Pattern> TYPES = Map.of(
+            "int", Pattern.compile("-?\\d+"),
+            "uuid", Pattern.compile("\\p{XDigit}{8}-\\p{XDigit}{4}-\\p{XDigit}{4}-\\p{XDigit}{4}-\\p{XDigit}{12}"));
+
+    private final String[] segments;
+    private final String[] names;
+    private final Pattern[] constraints;
     private final boolean fullMatch;
 
     public DynamicPath(String pattern) {
@@ -16,8 +35,13 @@ public class DynamicPath implements WithBoundParameters, Predicate<String> {
     }
 
     public DynamicPath(String pattern, boolean fullMatch) {
-        this.pattern = new Path(pattern);
+        this.segments = tokenize(pattern);
+        this.names = new String[segments.length];
+        this.constraints = new Pattern[segments.length];
         this.fullMatch = fullMatch;
+        for (int i = 0; i < segments.length; i++) {
+            if (isDynamic(segments[i])) compile(i, segments[i]);
+        }
     }
 
     public static DynamicPath equalTo(String pattern) {
@@ -29,47 +53,106 @@ public class DynamicPath implements WithBoundParameters, Predicate<String> {
     }
 
     public boolean test(String actual) {
-        var path = new Path(actual);
-        if (pattern.longerThan(path)) return false;
-        if (fullMatch && path.longerThan(pattern)) return false;
+        return match(actual, null);
+    }
 
-        for (int i = 0; i < pattern.segmentCount(); i++) {
-            if (!isDynamic(pattern.segment(i)) && !pattern.segment(i).equals(path.segment(i)))
-                return false;
-        }
-        return true;
+    /**
+     * Matches the given path and binds the values of its dynamic segments at the same time.
+     *
+     * @param path the path to match
+     * @return the values of the dynamic segments by name, or null if the path does not match
+     */
+    public Map<String, String> bind(String path) {
+        var bound = new HashMap<String, String>();
+        return match(path, bound) ? bound : null;
     }
 
-    private boolean isDynamic(String segment) {
+    public Map<String, String> parametersBoundTo(String path) {
+        var bound = bind(path);
+        return bound != null ? bound : new HashMap<>();
+    }
+
+    static boolean isDynamic(String segment) {
         return segment.startsWith(":");
     }
 
-    public Map<String, String> parametersBoundTo(String path) {
-        var p = new Path(path);
-        var boundParameters = new HashMap<String, String>();
+    String[] patternSegments() {
+        return segments;
+    }
+
+    boolean fullMatch() {
+        return fullMatch;
+    }
+
+    private boolean match(String path, Map<String, String> bound) {
+        int position = 0;
+        for (int i = 0; i < segments.length; i++) {
+            position = skipSlashes(path, position);
+            if (position == path.length()) return false;
+            int end = path.indexOf('/', position);
+            if (end < 0) end = path.length();
+
+            if (names[i] == null) {
+                int length = segments[i].length();
+                if (end - position != length || !path.regionMatches(position, segments[i], 0, length)) return false;
+            } else {
+                if (constraints[i] != null && !constraints[i].matcher(path.subSequence(position, end)).matches())
+                    return false;
+                if (bound != null) bound.put(names[i], path.substring(position, end));
+            }
+            position = end;
+        }
+        return !fullMatch || skipSlashes(path, position) == path.length();
+    }
+
+    private static int skipSlashes(String path, int position) {
+        while (position < path.length() && path.charAt(position) == '/') position++;
+        return position;
+    }
+
+    private void compile(int index, String segment) {
+        int brace = segment.indexOf('{');
+        if (brace < 0) {
+            names[index] = segment.substring(1);
+            return;
+        }
+        if (!segment.endsWith("}")) throw new IllegalArgumentException("Unclosed constraint in segment " + segment);
+
+        names[index] = segment.substring(1, brace);
+        String constraint = segment.substring(brace + 1, segment.length() - 1);
+        constraints[index] = TYPES.containsKey(constraint) ? TYPES.get(constraint) : Pattern.compile(constraint);
+    }
 
-        for (int i = 0; i < pattern.segmentCount(); i++) {
-            String segment = pattern.segment(i);
-            if (isDynamic(segment)) {
-                boundParameters.put(stripLeadingColon(segment), p.segment(i));
+    // Slashes within a constraint do not separate segments
+    private static String[] tokenize(String pattern) {
+        var segments = new ArrayList<String>();
+        int start = 0, depth = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '{') depth++;
+            else if (c == '}' && depth > 0) depth--;
+            else if (c == '/' && depth == 0) {
+                addSegment(segments, pattern.substring(start, i));
+                start = i + 1;
             }
         }
-        return boundParameters;
+        addSegment(segments, pattern.substring(start));
+        return segments.toArray(new String[0]);
     }
 
-    private String stripLeadingColon(String segment) {
-        return segment.substring(1);
+    private static void addSegment(List<String> segments, String segment) {
+        if (!segment.isEmpty()) segments.add(segment);
     }
 
     public static class Path {
-        private final String path;
+        private final String[] segments;
 
         public Path(String path) {
-            this.path = path;
+            this.segments = removeEmptyParts(path.split("/"));
         }
 
         public String[] segments() {
-            return removeEmptyParts(path.split("/"));
+            return segments.clone();
         }
 
         private static String[] removeEmptyParts(String[] parts) {
@@ -81,15 +164,15 @@ public class DynamicPath implements WithBoundParameters, Predicate<String> {
         }
 
         public boolean longerThan(Path other) {
-            return segments().length > other.segments().length;
+            return segments.length > other.segments.length;
         }
 
         public String segment(int index) {
-            return segments()[index];
+            return segments[index];
         }
 
         public int segmentCount() {
-            return segments().length;
+            return segments.length;
         }
     }
-}
\ No newline at end of file
+}
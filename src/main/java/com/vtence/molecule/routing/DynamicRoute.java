@@ -2,8 +2,11 @@ package com.vtence.molecule.routing;
 
 import com.vtence.molecule.Application;
 import com.vtence.molecule.Request;
+import com.vtence.molecule.http.HttpMethod;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 
 import static com.vtence.molecule.lib.predicates.Requests.withPath;
@@ -11,18 +14,42 @@ import static com.vtence.molecule.lib.predicates.Requests.withPath;
 public class DynamicRoute implements Route {
 
     private final Predicate<? super String> path;
+    private final Set<HttpMethod> methods;
     private final Predicate<? super Request> otherConditions;
     private final Application app;
 
     public DynamicRoute(Predicate<? super String> path,
                         Predicate<? super Request> otherConditions,
                         Application app) {
+        this(path, null, otherConditions, app);
+    }
+
+    DynamicRoute(Predicate<? super String> path,
+                 Set<HttpMethod> methods,
+                 Predicate<? super Request> otherConditions,
+                 Application app) {
         this.path = path;
+        this.methods = methods;
         this.otherConditions = otherConditions;
         this.app = app;
     }
 
+    Predicate<? super String> path() {
+        return path;
+    }
+
+    // The methods the route is restricted to, or null if it does not restrict the method
+    Set<HttpMethod> methods() {
+        return methods;
+    }
+
     public Optional<Application> route(Request request) {
+        if (path instanceof DynamicPath) {
+            // Match the path and bind its parameters in one go
+            var boundParameters = ((DynamicPath) path).bind(request.path());
+            if (boundParameters == null || !otherConditions.test(request)) return Optional.empty();
+            return Optional.of(withParameters(boundParameters, app));
+        }
         return matches(request) ? Optional.of(extractPathParameters(app)) : Optional.empty();
     }
 
@@ -30,6 +57,13 @@ public class DynamicRoute implements Route {
         return withPath(path).and(otherConditions).test(request);
     }
 
+    private Application withParameters(Map<String, String> boundParameters, Application app) {
+        return request -> {
+            boundParameters.forEach(request::addParameter);
+            return app.handle(request);
+        };
+    }
+
     private Application extractPathParameters(Application app) {
         return request -> {
             if (path instanceof WithBoundParameters) {
@@ -39,4 +73,4 @@ public class DynamicRoute implements Route {
             return app.handle(request);
         };
     }
-}
\ No newline at end of file
+}
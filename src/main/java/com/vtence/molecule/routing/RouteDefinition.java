@@ -5,6 +5,9 @@ import com.vtence.molecule.Request;
 import com.vtence.molecule.http.HttpMethod;
 import com.vtence.molecule.lib.predicates.Requests;
 
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -18,6 +21,7 @@ public class RouteDefinition implements ViaClause {
     private final Predicate<? super String> path;
 
     private Predicate<Request> conditions = Requests.anything();
+    private Set<HttpMethod> methods;
     private Application app;
 
     private RouteDefinition(Predicate<? super String> path) {
@@ -29,6 +33,7 @@ public class RouteDefinition implements ViaClause {
     }
 
     public RouteDefinition via(HttpMethod... methods) {
+        restrictTo(List.of(methods));
         return via(oneOf(methods));
     }
 
@@ -50,7 +55,16 @@ public class RouteDefinition implements ViaClause {
     }
 
     public Route toRoute() {
-        return new DynamicRoute(path, conditions, app);
+        return new DynamicRoute(path, methods, conditions, app);
+    }
+
+    // Keep track of the methods so the route can be indexed by method
+    private void restrictTo(List<HttpMethod> allowed) {
+        if (methods == null) {
+            methods = allowed.isEmpty() ? EnumSet.noneOf(HttpMethod.class) : EnumSet.copyOf(allowed);
+        } else {
+            methods.retainAll(allowed);
+        }
     }
 
     private RouteDefinition and(Predicate<Request> accepting) {
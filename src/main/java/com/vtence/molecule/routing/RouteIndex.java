@@ -0,0 +1,196 @@
+package com.vtence.molecule.routing;
+
+import com.vtence.molecule.Application;
+import com.vtence.molecule.Request;
+import com.vtence.molecule.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Routes requests to the first of a sequence of routes that accepts them, without trying every route in turn.
+ * <p>
+ * Routes are indexed first by the methods they accept, then by path. Routes on a {@link DynamicPath} are
+ * indexed in a tree of path segments, where each node branches on the static segments of the paths that go
+ * through it, and on dynamic segments such as <code>:id</code>.
+ * A request only tries the routes for its method whose path matches its own. Other routes are tried as well,
+ * in the order they were added, so that the first route to accept a request still wins.
+ * </p>
+ */
+public class RouteIndex implements Route, RouteSet {
+
+    private final Map<HttpMethod, Node> byMethod = new EnumMap<>(HttpMethod.class);
+    private final Node anyMethod = new Node();
+    private final List<Entry> unindexed = new ArrayList<>();
+    private int count;
+
+    public RouteIndex route(Route route) {
+        var entry = new Entry(count++, route);
+        if (!(entry.path instanceof DynamicPath)) {
+            unindexed.add(entry);
+            return this;
+        }
+
+        var path = (DynamicPath) entry.path;
+        if (entry.methods == null) {
+            anyMethod.add(path.patternSegments(), 0, path.fullMatch(), entry);
+        } else {
+            for (HttpMethod method : entry.methods) {
+                byMethod.computeIfAbsent(method, any -> new Node())
+                        .add(path.patternSegments(), 0, path.fullMatch(), entry);
+            }
+        }
+        return this;
+    }
+
+    public Optional<Application> route(Request request) {
+        var method = request.method();
+        var segments = segmentsOf(request.path());
+        var candidates = new ArrayList<Entry>();
+        var routes = byMethod.get(method);
+        if (routes != null) routes.collect(segments, 0, candidates);
+        anyMethod.collect(segments, 0, candidates);
+        if (candidates.isEmpty() && unindexed.isEmpty()) return Optional.empty();
+
+        for (var entry : inOrder(candidates)) {
+            if (!entry.accepts(method)) continue;
+            var app = entry.route.route(request);
+            if (app.isPresent()) return app;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Tells which methods the routes on the given path are restricted to.
+     * <p>
+     * The set is empty if no route restricted to some methods matches the path, or if a route that accepts any
+     * method does. Routes that do not tell which methods and path they accept are not considered.
+     * </p>
+     *
+     * @param path the request path
+     * @return the methods allowed on the path
+     */
+    public Set<HttpMethod> methodsAllowed(String path) {
+        var segments = segmentsOf(path);
+        var allowed = EnumSet.noneOf(HttpMethod.class);
+
+        var candidates = new ArrayList<Entry>();
+        anyMethod.collect(segments, 0, candidates);
+        if (anyMatches(candidates, path)) return EnumSet.noneOf(HttpMethod.class);
+
+        for (var routes : byMethod.entrySet()) {
+            candidates.clear();
+            routes.getValue().collect(segments, 0, candidates);
+            if (anyMatches(candidates, path)) allowed.add(routes.getKey());
+        }
+
+        for (var entry : unindexed) {
+            if (entry.path == null || !entry.path.test(path)) continue;
+            if (entry.methods == null) return EnumSet.noneOf(HttpMethod.class);
+            allowed.addAll(entry.methods);
+        }
+        return allowed;
+    }
+
+    // The tree only compares segments, constraints on dynamic segments are left to the path
+    private static boolean anyMatches(List<Entry> candidates, String path) {
+        for (var entry : candidates) {
+            if (entry.path.test(path)) return true;
+        }
+        return false;
+    }
+
+    // Candidates come out of the tree in no particular order, so merge them back with the other routes
+    private List<Entry> inOrder(List<Entry> candidates) {
+        candidates.sort(null);
+        if (unindexed.isEmpty()) return candidates;
+
+        var merged = new ArrayList<Entry>(candidates.size() + unindexed.size());
+        int i = 0, j = 0;
+        while (i < candidates.size() || j < unindexed.size()) {
+            if (j == unindexed.size() || i < candidates.size() && candidates.get(i).order < unindexed.get(j).order) {
+                merged.add(candidates.get(i++));
+            } else {
+                merged.add(unindexed.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    private static List<String> segmentsOf(String path) {
+        var segments = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > start) segments.add(path.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<Entry> endingHere = new ArrayList<>();
+        private final List<Entry> startingHere = new ArrayList<>();
+        private Node wildcard;
+
+        void add(String[] pattern, int depth, boolean fullMatch, Entry entry) {
+            if (depth == pattern.length) {
+                (fullMatch ? endingHere : startingHere).add(entry);
+                return;
+            }
+
+            String segment = pattern[depth];
+            Node child;
+            if (DynamicPath.isDynamic(segment)) {
+                if (wildcard == null) wildcard = new Node();
+                child = wildcard;
+            } else {
+                child = children.computeIfAbsent(segment, any -> new Node());
+            }
+            child.add(pattern, depth + 1, fullMatch, entry);
+        }
+
+        void collect(List<String> path, int depth, List<Entry> candidates) {
+            candidates.addAll(startingHere);
+            if (depth == path.size()) {
+                candidates.addAll(endingHere);
+                return;
+            }
+
+            var child = children.get(path.get(depth));
+            if (child != null) child.collect(path, depth + 1, candidates);
+            if (wildcard != null) wildcard.collect(path, depth + 1, candidates);
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final int order;
+        private final Route route;
+        private final Predicate<? super String> path;
+        private final Set<HttpMethod> methods;
+
+        Entry(int order, Route route) {
+            this.order = order;
+            this.route = route;
+            this.path = route instanceof DynamicRoute ? ((DynamicRoute) route).path() : null;
+            this.methods = route instanceof DynamicRoute ? ((DynamicRoute) route).methods() : null;
+        }
+
+        boolean accepts(HttpMethod method) {
+            return methods == null || methods.contains(method);
+        }
+
+        public int compareTo(Entry other) {
+            return Integer.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.vtence.molecule.servers;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The content of a request body sent with the <code>chunked</code> transfer coding.
+ * Chunk extensions and trailers are read and discarded.
+ */
+final class ChunkedInputStream extends InputStream {
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final InputStream input;
+    private long remaining;
+    private boolean started;
+    private boolean finished;
+
+    ChunkedInputStream(InputStream input) {
+        this.input = input;
+    }
+
+    public int read() throws IOException {
+        if (!nextChunk()) return -1;
+        int b = input.read();
+        if (b < 0) throw new EOFException("Chunked request body ended prematurely");
+        remaining--;
+        return b;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!nextChunk()) return -1;
+        int read = input.read(b, off, (int) Math.min(len, remaining));
+        if (read < 0) throw new EOFException("Chunked request body ended prematurely");
+        remaining -= read;
+        return read;
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (finished) return false;
+        if (remaining > 0) return true;
+
+        if (started) readLine();
+        started = true;
+        remaining = chunkSize(readLine());
+        if (remaining == 0) {
+            while (!readLine().isEmpty()) {
+                // discard trailers
+            }
+            finished = true;
+        }
+        return !finished;
+    }
+
+    private long chunkSize(String line) throws IOException {
+        int extension = line.indexOf(';');
+        var size = (extension >= 0 ? line.substring(0, extension) : line).trim();
+        try {
+            long value = Long.parseLong(size, 16);
+            if (value < 0) throw new NumberFormatException(size);
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + size);
+        }
+    }
+
+    private String readLine() throws IOException {
+        var line = new StringBuilder();
+        int b;
+        while ((b = input.read()) != '\n') {
+            if (b < 0) throw new EOFException("Chunked request body ended prematurely");
+            if (line.length() == MAX_LINE_LENGTH) throw new IOException("Chunk line too long");
+            if (b != '\r') line.append((char) b);
+        }
+        return line.toString();
+    }
+}
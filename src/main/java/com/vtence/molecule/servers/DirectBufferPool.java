@@ -0,0 +1,42 @@
+package com.vtence.molecule.servers;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Direct buffers of a single size, recycled across the connections of a server.
+ * <p>
+ * The pool only keeps up to its capacity in free buffers, so that a burst of connections does not pin
+ * memory once it is gone.
+ * </p>
+ */
+final class DirectBufferPool {
+    private final int bufferSize;
+    private final int capacity;
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger available = new AtomicInteger();
+
+    DirectBufferPool(int bufferSize, int capacity) {
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) return ByteBuffer.allocateDirect(bufferSize);
+        available.decrementAndGet();
+        return buffer;
+    }
+
+    void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) return;
+        if (available.incrementAndGet() > capacity) {
+            available.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        free.offer(buffer);
+    }
+}
@@ -0,0 +1,39 @@
+package com.vtence.molecule.servers;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The content of a request body delimited by its <code>Content-Length</code>.
+ */
+final class FixedLengthInputStream extends InputStream {
+    private final InputStream input;
+    private long remaining;
+
+    FixedLengthInputStream(InputStream input, long length) {
+        this.input = input;
+        this.remaining = length;
+    }
+
+    public int read() throws IOException {
+        if (remaining == 0) return -1;
+        int b = input.read();
+        if (b < 0) throw new EOFException("Request body ended prematurely");
+        remaining--;
+        return b;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (remaining == 0) return -1;
+        int read = input.read(b, off, (int) Math.min(len, remaining));
+        if (read < 0) throw new EOFException("Request body ended prematurely");
+        remaining -= read;
+        return read;
+    }
+
+    public int available() throws IOException {
+        return (int) Math.min(input.available(), remaining);
+    }
+}
@@ -0,0 +1,34 @@
+package com.vtence.molecule.servers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A channel over a response output stream that flushes after every write, so that content published
+ * over time reaches the client as soon as it is available.
+ */
+final class FlushingChannel implements WritableByteChannel {
+    private final OutputStream out;
+    private final WritableByteChannel channel;
+
+    FlushingChannel(OutputStream out) {
+        this.out = out;
+        this.channel = Channels.newChannel(out);
+    }
+
+    public int write(ByteBuffer src) throws IOException {
+        int written = channel.write(src);
+        out.flush();
+        return written;
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    // The response stream is closed by the server once the response completes
+    public void close() {}
+}
@@ -0,0 +1,106 @@
+package com.vtence.molecule.servers;
+
+import com.vtence.molecule.BodyPart;
+import com.vtence.molecule.http.Header;
+
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * Decodes <code>application/x-www-form-urlencoded</code> and <code>multipart/form-data</code> content.
+ */
+final class FormDecoder {
+
+    private FormDecoder() {}
+
+    static void decodeUrlEncoded(String content, Charset charset, Map<String, List<String>> parameters) {
+        if (content == null || content.isEmpty()) return;
+
+        for (String pair : content.split("&")) {
+            if (pair.isEmpty()) continue;
+            int equals = pair.indexOf('=');
+            var name = URLDecoder.decode(equals >= 0 ? pair.substring(0, equals) : pair, charset);
+            var value = equals >= 0 ? URLDecoder.decode(pair.substring(equals + 1), charset) : "";
+            parameters.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+    }
+
+    static String boundaryOf(String contentType) {
+        return unquote(new Header(contentType).first().parameter("boundary"));
+    }
+
+    static List<BodyPart> decodeMultipart(byte[] content, String boundary, Charset charset) {
+        var parts = new ArrayList<BodyPart>();
+        var delimiter = ("--" + boundary).getBytes(ISO_8859_1);
+        var separator = ("\r\n--" + boundary).getBytes(ISO_8859_1);
+
+        int position = indexOf(content, delimiter, 0);
+        if (position < 0) return parts;
+        position += delimiter.length;
+
+        while (!startsWith(content, position, "--")) {
+            int headersStart = position + 2;
+            int headersEnd = indexOf(content, "\r\n\r\n".getBytes(ISO_8859_1), headersStart);
+            if (headersEnd < 0) break;
+            int contentStart = headersEnd + 4;
+            int contentEnd = indexOf(content, separator, contentStart);
+            if (contentEnd < 0) break;
+
+            parts.add(partOf(new String(content, headersStart, headersEnd - headersStart, charset),
+                             Arrays.copyOfRange(content, contentStart, contentEnd)));
+            position = contentEnd + separator.length;
+        }
+
+        return parts;
+    }
+
+    private static BodyPart partOf(String headers, byte[] content) {
+        var part = new BodyPart().content(content);
+        for (String line : headers.split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon < 0) continue;
+            var name = line.substring(0, colon).trim();
+            var value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Disposition")) {
+                var disposition = new Header(value).first();
+                part.name(unquote(disposition.parameter("name")))
+                    .filename(unquote(disposition.parameter("filename")));
+            } else if (name.equalsIgnoreCase("Content-Type")) {
+                part.contentType(value);
+            }
+        }
+        return part;
+    }
+
+    private static String unquote(String value) {
+        if (value != null && value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static boolean startsWith(byte[] content, int from, String prefix) {
+        if (from + prefix.length() > content.length) return true;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (content[from + i] != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] content, byte[] pattern, int from) {
+        outer:
+        for (int i = from; i <= content.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (content[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
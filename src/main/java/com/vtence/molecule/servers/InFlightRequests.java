@@ -0,0 +1,58 @@
+package com.vtence.molecule.servers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps count of the requests a server has started but not yet completed, so that it can let them
+ * finish before shutting down.
+ */
+final class InFlightRequests {
+    private int count;
+    private volatile boolean draining;
+
+    synchronized void started() {
+        count++;
+    }
+
+    synchronized void completed() {
+        if (--count == 0) notifyAll();
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    void drain() {
+        draining = true;
+    }
+
+    void resume() {
+        draining = false;
+    }
+
+    boolean draining() {
+        return draining;
+    }
+
+    /**
+     * Waits for in-flight requests to complete.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if all requests completed in time, false otherwise
+     */
+    synchronized boolean awaitCompletion(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            while (count > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
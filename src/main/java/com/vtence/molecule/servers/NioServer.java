@@ -0,0 +1,994 @@
+package com.vtence.molecule.servers;
+
+import com.vtence.molecule.Application;
+import com.vtence.molecule.Body;
+import com.vtence.molecule.BodyPart;
+import com.vtence.molecule.FailureReporter;
+import com.vtence.molecule.Request;
+import com.vtence.molecule.Response;
+import com.vtence.molecule.Server;
+import com.vtence.molecule.ServerOption;
+import com.vtence.molecule.ServerOptions;
+import com.vtence.molecule.http.ContentType;
+import com.vtence.molecule.http.HttpStatus;
+import com.vtence.molecule.http.Uri;
+import com.vtence.molecule.lib.ByteContent;
+import com.vtence.molecule.lib.ChunkedBody;
+import com.vtence.molecule.lib.FileRegion;
+import com.vtence.molecule.lib.PublisherBody;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.vtence.molecule.http.HeaderNames.CONNECTION;
+import static com.vtence.molecule.http.HeaderNames.CONTENT_LENGTH;
+import static com.vtence.molecule.http.HeaderNames.CONTENT_TYPE;
+import static com.vtence.molecule.http.HeaderNames.TRANSFER_ENCODING;
+import static com.vtence.molecule.http.HttpStatus.BAD_REQUEST;
+import static com.vtence.molecule.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static com.vtence.molecule.http.HttpStatus.NOT_IMPLEMENTED;
+import static com.vtence.molecule.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static com.vtence.molecule.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static com.vtence.molecule.http.Scheme.HTTP;
+import static com.vtence.molecule.http.Scheme.HTTPS;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A server built on <code>java.nio</code> only, with no dependency outside the JDK.
+ * <p>
+ * Selector threads accept connections and wait for idle keep-alive connections to become readable.
+ * A readable connection is handed to a worker, which reads the request, runs the application and writes
+ * the response in blocking mode, using buffers drawn from a pool of direct buffers. The connection then
+ * goes back to its selector until the next request arrives.
+ * </p>
+ * <p>
+ * Small responses are sent with a <code>Content-Length</code>, larger ones using the <code>chunked</code>
+ * transfer coding. HTTP/2 is not supported.
+ * </p>
+ */
+public class NioServer implements Server {
+
+    private static final int DEFAULT_NUMBER_OF_THREADS = 8;
+    private static final int DEFAULT_NUMBER_OF_SELECTORS = 1;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    private static final int BACKLOG = 1024;
+    private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toNanos(60);
+    private static final long IO_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_DRAINED_BYTES = 64 * 1024;
+    private static final int MAX_FORM_SIZE = 2 * 1024 * 1024;
+
+    private static final byte[] CRLF = "\r\n".getBytes(ISO_8859_1);
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(ISO_8859_1);
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(ISO_8859_1);
+
+    private final String host;
+    private final int port;
+    private final int numberOfThreads;
+    private final DirectBufferPool buffers = new DirectBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final InFlightRequests inFlight = new InFlightRequests();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    private FailureReporter failureReporter = FailureReporter.IGNORE;
+    private volatile boolean running;
+    private Application app;
+    private SSLContext ssl;
+    private Executor executor;
+    private ExecutorService workers;
+    private ServerSocketChannel serverChannel;
+    private SelectorLoop[] loops;
+
+    public NioServer(String host, int port) {
+        this(host, port, DEFAULT_NUMBER_OF_THREADS);
+    }
+
+    public NioServer(String host, int port, int numberOfThreads) {
+        this.host = host;
+        this.port = port;
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    public void reportErrorsTo(FailureReporter reporter) {
+        this.failureReporter = reporter;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public void run(final Application app, ServerOption<?>... options) throws IOException {
+        run(app, null, options);
+    }
+
+    public void run(final Application app, SSLContext context, ServerOption<?>... options) throws IOException {
+        var settings = ServerOptions.of(options);
+        this.app = app;
+        this.ssl = context;
+        this.executor = executorFor(settings);
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(host, port), BACKLOG);
+        serverChannel.configureBlocking(false);
+
+        loops = new SelectorLoop[settings.ioThreads().orElse(DEFAULT_NUMBER_OF_SELECTORS)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new SelectorLoop(i);
+        }
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        inFlight.resume();
+        for (SelectorLoop loop : loops) {
+            loop.start();
+        }
+    }
+
+    private Executor executorFor(ServerOptions options) {
+        if (options.executor().isPresent()) return options.executor().get();
+
+        int threads = options.workerThreads().orElse(numberOfThreads);
+        workers = options.queueSize().isPresent() ?
+                  Workers.boundedPool("nio", threads, options.queueSize().getAsInt()) :
+                  Workers.fixedPool("nio", threads);
+        return workers;
+    }
+
+    public void shutdown() throws IOException {
+        running = false;
+        if (serverChannel != null) serverChannel.close();
+        if (loops != null) {
+            for (SelectorLoop loop : loops) {
+                loop.stop();
+            }
+        }
+        connections.forEach(Connection::close);
+        if (workers != null) workers.shutdown();
+    }
+
+    public void shutdown(Duration timeout) throws IOException {
+        if (!running) return;
+        inFlight.drain();
+        serverChannel.close();
+        // Let the selector release the listening socket
+        loops[0].selector.wakeup();
+        for (Connection connection : connections) {
+            if (connection.idle) connection.close();
+        }
+        inFlight.awaitCompletion(timeout);
+        shutdown();
+    }
+
+    public int inFlightRequests() {
+        return inFlight.count();
+    }
+
+    private void dispatch(Connection connection) {
+        try {
+            executor.execute(connection::serve);
+        } catch (RejectedExecutionException overloaded) {
+            failureReporter.errorOccurred(overloaded);
+            connection.reject(SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.socket().setTcpNoDelay(true);
+            var loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+            var connection = new Connection(channel, loop);
+            connections.add(connection);
+            connection.park();
+        }
+    }
+
+    private class SelectorLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<Connection> parked = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+        private final boolean sweeping;
+        private long lastSweep = System.nanoTime();
+
+        public SelectorLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-io-" + index);
+            this.sweeping = index == 0;
+        }
+
+        public void start() {
+            thread.start();
+        }
+
+        public void stop() {
+            selector.wakeup();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        public void park(Connection connection) {
+            parked.add(connection);
+            selector.wakeup();
+        }
+
+        public void run() {
+            try {
+                while (running) {
+                    // Selecting clears pending wakeups, so don't wait if connections were parked meanwhile
+                    if (parked.isEmpty()) selector.select(SWEEP_INTERVAL);
+                    else selector.selectNow();
+                    registerParkedConnections();
+                    dispatchReadyConnections();
+                    if (sweeping) closeExpiredConnections();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) failureReporter.errorOccurred(e);
+            } finally {
+                close();
+            }
+        }
+
+        private void registerParkedConnections() {
+            Connection connection;
+            while ((connection = parked.poll()) != null) {
+                try {
+                    connection.channel.configureBlocking(false);
+                    connection.channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (IOException e) {
+                    connection.close();
+                }
+            }
+        }
+
+        private void dispatchReadyConnections() throws IOException {
+            var ready = new ArrayList<Connection>();
+            // Cancelled keys are only deregistered on the next selection,
+            // and we need that to happen before workers can switch channels to blocking mode
+            while (!selector.selectedKeys().isEmpty()) {
+                var keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    var key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept((ServerSocketChannel) key.channel());
+                    } else if (key.isReadable()) {
+                        key.cancel();
+                        ready.add((Connection) key.attachment());
+                    } else if (key.isWritable()) {
+                        ((Connection) key.attachment()).flushRejection(key);
+                    }
+                }
+                selector.selectNow();
+            }
+            ready.forEach(NioServer.this::dispatch);
+        }
+
+        private void closeExpiredConnections() {
+            long now = System.nanoTime();
+            if (now - lastSweep < TimeUnit.MILLISECONDS.toNanos(SWEEP_INTERVAL)) return;
+            lastSweep = now;
+            for (Connection connection : connections) {
+                if (connection.expired(now)) connection.close();
+            }
+        }
+
+        private void close() {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                failureReporter.errorOccurred(e);
+            }
+        }
+    }
+
+    private class Connection {
+        private final SocketChannel channel;
+        private final SecureChannel secure;
+        private final ByteChannel io;
+        private final SelectorLoop loop;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final InputStream input = new ConnectionInput();
+
+        private volatile long deadline;
+        private volatile boolean idle;
+        private ByteBuffer in;
+        private boolean keepAlive;
+        private boolean continueExpected;
+        private InputStream body;
+        private ByteBuffer rejection;
+
+        public Connection(SocketChannel channel, SelectorLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+            this.secure = ssl != null ? new SecureChannel(channel, serverEngine()) : null;
+            this.io = secure != null ? secure : channel;
+        }
+
+        private SSLEngine serverEngine() {
+            var engine = ssl.createSSLEngine();
+            engine.setUseClientMode(false);
+            return engine;
+        }
+
+        public void serve() {
+            idle = false;
+            try {
+                channel.configureBlocking(true);
+                if (in == null) in = buffers.acquire().flip();
+                var head = readHead();
+                if (head == null) {
+                    dispose();
+                    return;
+                }
+                handle(head);
+            } catch (RequestHead.Malformed malformed) {
+                fail(malformed.status);
+            } catch (IOException e) {
+                dispose();
+            } catch (Throwable failure) {
+                failureReporter.errorOccurred(failure);
+                dispose();
+            }
+        }
+
+        private RequestHead readHead() throws IOException, RequestHead.Malformed {
+            while (true) {
+                var head = RequestHead.parse(in);
+                if (head != null) return head;
+                if (in.position() == 0 && in.limit() == in.capacity()) {
+                    throw new RequestHead.Malformed(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+                }
+                if (fill() < 0) return null;
+            }
+        }
+
+        private void handle(RequestHead head) throws RequestHead.Malformed {
+            keepAlive = head.keepAlive();
+            body = bodyOf(head);
+            // Only a request with content waits for us to go ahead
+            continueExpected = head.expectsContinue() && !isEmpty(body);
+
+            var request = asRequest(head);
+            inFlight.started();
+            try {
+                // Form data comes from the body, so it has to be parsed before the application gets to read the body
+                if (hasFormData(head)) {
+                    request.allParameters();
+                    request.parts();
+                }
+                app.handle(request)
+                   .whenComplete((response, error) -> respond(head, error == null ? response : failed(error)));
+            } catch (Throwable failure) {
+                respond(head, failed(failure));
+            }
+        }
+
+        private Response failed(Throwable error) {
+            for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+                if (cause instanceof FormTooLarge) {
+                    // What is left of the form is not worth reading
+                    keepAlive = false;
+                    return Response.of(PAYLOAD_TOO_LARGE);
+                }
+            }
+            failureReporter.errorOccurred(error);
+            return Response.of(INTERNAL_SERVER_ERROR);
+        }
+
+        private InputStream bodyOf(RequestHead head) throws RequestHead.Malformed {
+            var transferEncoding = head.header(TRANSFER_ENCODING);
+            var contentLength = head.header(CONTENT_LENGTH);
+            if (transferEncoding != null) {
+                // A request with both framing headers is a request smuggling attempt
+                if (contentLength != null) throw new RequestHead.Malformed(BAD_REQUEST);
+                if (!transferEncoding.equalsIgnoreCase("chunked")) throw new RequestHead.Malformed(NOT_IMPLEMENTED);
+                return new ChunkedInputStream(input);
+            }
+            if (contentLength != null) {
+                long length = parseLength(contentLength);
+                return length > 0 ? new FixedLengthInputStream(input, length) : InputStream.nullInputStream();
+            }
+            return InputStream.nullInputStream();
+        }
+
+        private boolean isEmpty(InputStream body) {
+            return !(body instanceof ChunkedInputStream || body instanceof FixedLengthInputStream);
+        }
+
+        private long parseLength(String value) throws RequestHead.Malformed {
+            try {
+                long length = Long.parseLong(value);
+                if (length < 0) throw new RequestHead.Malformed(BAD_REQUEST);
+                return length;
+            } catch (NumberFormatException e) {
+                throw new RequestHead.Malformed(BAD_REQUEST);
+            }
+        }
+
+        private Request asRequest(RequestHead head) throws RequestHead.Malformed {
+            var remote = remoteAddress();
+            var uri = uriOf(head);
+            return new Request(head.method, uri, head.protocol,
+                               head::headers,
+                               () -> readParameters(head, uri),
+                               () -> readParts(head))
+                    .remoteIp(remote.getAddress().getHostAddress())
+                    .remotePort(remote.getPort())
+                    .remoteHost(remote::getHostName)
+                    .timestamp(System.currentTimeMillis())
+                    .secure(secure != null)
+                    .body(body);
+        }
+
+        private InetSocketAddress remoteAddress() {
+            return (InetSocketAddress) channel.socket().getRemoteSocketAddress();
+        }
+
+        private Uri uriOf(RequestHead head) throws RequestHead.Malformed {
+            Uri uri;
+            try {
+                uri = Uri.of(head.target);
+            } catch (IllegalArgumentException e) {
+                throw new RequestHead.Malformed(BAD_REQUEST);
+            }
+            if (uri.scheme() == null) uri = uri.scheme(secure != null ? HTTPS.name() : HTTP.name());
+            if (uri.host() == null) uri = uri.host(host);
+            if (uri.port() == -1) uri = uri.port(port);
+            return uri;
+        }
+
+        private boolean hasFormData(RequestHead head) {
+            var contentType = head.header(CONTENT_TYPE);
+            return contentType != null && (contentType.startsWith("application/x-www-form-urlencoded")
+                                           || contentType.startsWith("multipart/form-data"));
+        }
+
+        private Map<String, List<String>> readParameters(RequestHead head, Uri uri) {
+            var parameters = new LinkedHashMap<String, List<String>>();
+            FormDecoder.decodeUrlEncoded(uri.query(), UTF_8, parameters);
+            var contentType = head.header(CONTENT_TYPE);
+            if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+                var charset = charsetOf(contentType);
+                FormDecoder.decodeUrlEncoded(new String(readForm(head), charset), charset, parameters);
+            }
+            return parameters;
+        }
+
+        private List<BodyPart> readParts(RequestHead head) {
+            var contentType = head.header(CONTENT_TYPE);
+            if (contentType == null || !contentType.startsWith("multipart/form-data")) return List.of();
+            var boundary = FormDecoder.boundaryOf(contentType);
+            if (boundary == null) return List.of();
+            return FormDecoder.decodeMultipart(readForm(head), boundary, charsetOf(contentType));
+        }
+
+        private Charset charsetOf(String contentType) {
+            var type = ContentType.parse(contentType);
+            return type != null ? type.charset(UTF_8) : UTF_8;
+        }
+
+        // Forms are decoded in memory, so we refuse to read more than a reasonable amount
+        private byte[] readForm(RequestHead head) {
+            var contentLength = head.header(CONTENT_LENGTH);
+            if (contentLength != null && Long.parseLong(contentLength) > MAX_FORM_SIZE) throw new FormTooLarge();
+            try {
+                var content = body.readNBytes(MAX_FORM_SIZE + 1);
+                if (content.length > MAX_FORM_SIZE) throw new FormTooLarge();
+                return content;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void respond(RequestHead head, Response response) {
+            boolean streaming = false;
+            try {
+                streaming = commit(head, response);
+                if (!streaming) finish();
+            } catch (Throwable failure) {
+                failureReporter.errorOccurred(failure);
+                dispose();
+            } finally {
+                if (!streaming) inFlight.completed();
+            }
+        }
+
+        // Returns true if the body is still being published, in which case the response completes later
+        private boolean commit(RequestHead head, Response response) throws IOException {
+            if ("close".equalsIgnoreCase(response.header(CONNECTION))) keepAlive = false;
+            // The client is still waiting for our go ahead before sending the body, which it may never send,
+            // so we won't wait for it either
+            if (continueExpected) keepAlive = false;
+            // Let clients know they need to reconnect elsewhere
+            if (inFlight.draining()) keepAlive = false;
+            var bodyAllowed = ResponseBodies.allowed(head.method, response.statusCode());
+
+            Body content = response.body();
+            var out = new ResponseStream(head, response, bodyAllowed, content instanceof ChunkedBody);
+            if (bodyAllowed && content instanceof PublisherBody) {
+                stream(out, (PublisherBody) content);
+                return true;
+            }
+
+            try (content) {
+                try {
+                    if (bodyAllowed && secure == null && content instanceof FileRegion) {
+                        out.transfer((FileRegion) content);
+                    } else if (bodyAllowed && content instanceof ByteContent) {
+                        var bytes = (ByteContent) content;
+                        if (bytes.buffered(response.charset())) {
+                            out.write(bytes.buffers(response.charset()));
+                        } else {
+                            // Content too large to buffer still knows its size
+                            out.expect(content.size(response.charset()));
+                            content.writeTo(out, response.charset());
+                        }
+                    } else if (!(content instanceof PublisherBody)) {
+                        // Subscribing to content we can't send would only wait for it, possibly forever
+                        content.writeTo(out, response.charset());
+                    }
+                    out.close();
+                } finally {
+                    out.release();
+                }
+            }
+            return false;
+        }
+
+        private void stream(ResponseStream out, PublisherBody content) {
+            content.transferTo(out.channel()).whenComplete((ignored, error) -> {
+                try (content) {
+                    try {
+                        if (error != null) throw error;
+                        out.close();
+                    } finally {
+                        out.release();
+                    }
+                    finish();
+                } catch (Throwable failure) {
+                    failureReporter.errorOccurred(failure);
+                    dispose();
+                } finally {
+                    inFlight.completed();
+                }
+            });
+        }
+
+        private void finish() throws IOException {
+            if (!keepAlive || !drain()) {
+                dispose();
+                return;
+            }
+
+            if (in.hasRemaining() || (secure != null && secure.hasBufferedInput())) {
+                dispatch(this);
+            } else {
+                buffers.release(in);
+                in = null;
+                park();
+            }
+        }
+
+        // Whatever the application did not read of the request body must be skipped
+        // before we can read the next request
+        private boolean drain() throws IOException {
+            long drained = 0;
+            var discard = new byte[1024];
+            int read;
+            while (drained <= MAX_DRAINED_BYTES && (read = body.read(discard)) >= 0) {
+                drained += read;
+            }
+            return drained <= MAX_DRAINED_BYTES;
+        }
+
+        public void park() {
+            idle = true;
+            if (inFlight.draining()) {
+                close();
+                return;
+            }
+            deadline = System.nanoTime() + IDLE_TIMEOUT;
+            loop.park(this);
+        }
+
+        public boolean expired(long now) {
+            long expiration = deadline;
+            return expiration != 0 && now - expiration > 0;
+        }
+
+        // Called from a selector thread, so we avoid blocking on a TLS handshake or a slow client,
+        // and finish writing the response when the channel becomes writable again
+        public void reject(HttpStatus status) {
+            if (secure != null) {
+                dispose();
+                return;
+            }
+            rejection = closingResponse(status);
+            try {
+                deadline = System.nanoTime() + IO_TIMEOUT;
+                channel.register(loop.selector, SelectionKey.OP_WRITE, this);
+            } catch (IOException e) {
+                dispose();
+            }
+        }
+
+        // Called from the selector thread when a rejected connection can be written to
+        public void flushRejection(SelectionKey key) {
+            try {
+                channel.write(rejection);
+                if (rejection.hasRemaining()) return;
+            } catch (IOException ignored) {
+                // we're closing anyway
+            }
+            key.cancel();
+            deadline = 0;
+            dispose();
+        }
+
+        private void fail(HttpStatus status) {
+            try {
+                send(closingResponse(status));
+            } catch (IOException ignored) {
+                // we're closing anyway
+            }
+            dispose();
+        }
+
+        private ByteBuffer closingResponse(HttpStatus status) {
+            return ByteBuffer.wrap(String.format("HTTP/1.1 %d %s\r\nContent-Length: 0\r\nConnection: close\r\n\r\n",
+                                                 status.code, status.reason).getBytes(ISO_8859_1));
+        }
+
+        private int fill() throws IOException {
+            in.compact();
+            deadline = System.nanoTime() + IO_TIMEOUT;
+            try {
+                return io.read(in);
+            } finally {
+                deadline = 0;
+                in.flip();
+            }
+        }
+
+        private void send(ByteBuffer... data) throws IOException {
+            try {
+                for (ByteBuffer buffer : data) {
+                    while (buffer.hasRemaining()) {
+                        deadline = System.nanoTime() + IO_TIMEOUT;
+                        if (secure != null) secure.write(buffer);
+                        else channel.write(data);
+                    }
+                }
+            } finally {
+                deadline = 0;
+            }
+        }
+
+        private void transferFile(FileChannel file, long position, long count) throws IOException {
+            try {
+                long end = position + count;
+                while (position < end) {
+                    deadline = System.nanoTime() + IO_TIMEOUT;
+                    long transferred = file.transferTo(position, end - position, channel);
+                    if (transferred == 0 && position >= file.size()) throw new IOException("File was truncated");
+                    position += transferred;
+                }
+            } finally {
+                deadline = 0;
+            }
+        }
+
+        // Closes the channel, possibly from another thread, which unblocks any pending I/O
+        public void close() {
+            if (closed.getAndSet(true)) return;
+            connections.remove(this);
+            try {
+                io.close();
+            } catch (IOException ignored) {
+                // nothing we can do
+            }
+        }
+
+        // Closes the channel and returns the buffer, only from the thread serving the connection
+        private void dispose() {
+            close();
+            buffers.release(in);
+            in = null;
+        }
+
+        private class ConnectionInput extends InputStream {
+            public int read() throws IOException {
+                if (!ensureInput()) return -1;
+                return in.get() & 0xff;
+            }
+
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return 0;
+                if (!ensureInput()) return -1;
+                int count = Math.min(len, in.remaining());
+                in.get(b, off, count);
+                return count;
+            }
+
+            public int available() {
+                return in.remaining();
+            }
+
+            private boolean ensureInput() throws IOException {
+                // The client may have sent the body without waiting, in which case there is no need to ask
+                if (continueExpected) {
+                    continueExpected = false;
+                    if (!in.hasRemaining()) send(ByteBuffer.wrap(CONTINUE));
+                }
+                if (in.hasRemaining()) return true;
+                return fill() > 0;
+            }
+        }
+
+        private class ResponseStream extends OutputStream {
+            private final RequestHead head;
+            private final Response response;
+            private final boolean bodyAllowed;
+            private long declaredLength;
+            private long expectedLength = -1;
+            private final ByteBuffer buffer = buffers.acquire();
+            private final ByteBuffer chunkSize = ByteBuffer.allocate(18);
+
+            private ByteBuffer headBuffer;
+            private ByteBuffer pendingHead;
+            private boolean committed;
+            private boolean chunked;
+            private long written;
+            private boolean closed;
+
+            public ResponseStream(RequestHead head, Response response, boolean bodyAllowed, boolean streaming) {
+                this.head = head;
+                this.response = response;
+                this.bodyAllowed = bodyAllowed;
+                this.declaredLength = response.hasHeader(CONTENT_LENGTH) ? response.contentLength() : -1;
+                if (streaming && bodyAllowed && declaredLength < 0) commit(false);
+            }
+
+            public void write(int b) throws IOException {
+                if (!bodyAllowed) return;
+                if (!buffer.hasRemaining()) sendBuffer(false);
+                buffer.put((byte) b);
+            }
+
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (!bodyAllowed) return;
+                while (len > 0) {
+                    if (!buffer.hasRemaining()) sendBuffer(false);
+                    int count = Math.min(len, buffer.remaining());
+                    buffer.put(b, off, count);
+                    off += count;
+                    len -= count;
+                }
+            }
+
+            // Sends the content along with the head in a single gathering write
+            public void write(ByteBuffer[] content) throws IOException {
+                if (committed) {
+                    for (ByteBuffer data : content) {
+                        write(data);
+                    }
+                    return;
+                }
+
+                long length = 0;
+                for (ByteBuffer data : content) {
+                    length += data.remaining();
+                }
+                commit(length);
+                var frames = new ByteBuffer[content.length + 1];
+                frames[0] = pendingHead;
+                System.arraycopy(content, 0, frames, 1, content.length);
+                send(frames);
+                pendingHead = null;
+                written += length;
+            }
+
+            private void write(ByteBuffer data) throws IOException {
+                while (data.hasRemaining()) {
+                    if (!buffer.hasRemaining()) sendBuffer(false);
+                    int count = Math.min(data.remaining(), buffer.remaining());
+                    buffer.put(data.slice().limit(count));
+                    data.position(data.position() + count);
+                }
+            }
+
+            // Sends every write straight away, for content that is published over time
+            public WritableByteChannel channel() {
+                return new WritableByteChannel() {
+                    public int write(ByteBuffer src) throws IOException {
+                        int count = src.remaining();
+                        ResponseStream.this.write(src);
+                        flush();
+                        return count;
+                    }
+
+                    public boolean isOpen() {
+                        return !closed;
+                    }
+
+                    public void close() {}
+                };
+            }
+
+            public void expect(long length) {
+                this.expectedLength = length;
+            }
+
+            public void flush() throws IOException {
+                // Until committed, keep buffering in the hope of sending the response with a length
+                if (committed && buffer.position() > 0) sendBuffer(false);
+            }
+
+            public void transfer(FileRegion region) throws IOException {
+                if (!committed) {
+                    commit(region.count());
+                    send(pendingHead);
+                    pendingHead = null;
+                }
+                try (var file = FileChannel.open(region.path(), READ)) {
+                    transferFile(file, region.position(), region.count());
+                }
+                written += region.count();
+            }
+
+            public void close() throws IOException {
+                if (closed) return;
+                closed = true;
+                sendBuffer(true);
+                if (chunked) send(ByteBuffer.wrap(LAST_CHUNK));
+                // The client cannot tell where a truncated response ends
+                if (declaredLength >= 0 && bodyAllowed && written != declaredLength) keepAlive = false;
+            }
+
+            public void release() {
+                buffers.release(buffer);
+                buffers.release(headBuffer);
+            }
+
+            private void sendBuffer(boolean last) throws IOException {
+                if (!committed) commit(last);
+                buffer.flip();
+                written += buffer.remaining();
+                if (declaredLength >= 0 && written > declaredLength) {
+                    keepAlive = false;
+                    throw new IOException("Response body exceeds declared content length of " + declaredLength);
+                }
+
+                var frames = new ArrayList<ByteBuffer>(5);
+                if (pendingHead != null) frames.add(pendingHead);
+                if (buffer.hasRemaining()) {
+                    if (chunked) frames.add(chunkSize(buffer.remaining()));
+                    frames.add(buffer);
+                    if (chunked) frames.add(ByteBuffer.wrap(CRLF));
+                }
+                send(frames.toArray(new ByteBuffer[0]));
+                pendingHead = null;
+                buffer.clear();
+            }
+
+            private ByteBuffer chunkSize(int size) {
+                chunkSize.clear();
+                chunkSize.put(Integer.toHexString(size).getBytes(ISO_8859_1)).put(CRLF);
+                return chunkSize.flip();
+            }
+
+            private void commit(boolean complete) {
+                if (!bodyAllowed || declaredLength >= 0) {
+                    commit(-1);
+                } else if (complete) {
+                    commit(buffer.position());
+                } else if (expectedLength >= 0) {
+                    declaredLength = expectedLength;
+                    commit(expectedLength);
+                } else if (head.http11()) {
+                    chunked = true;
+                    commit(-1);
+                } else {
+                    keepAlive = false;
+                    commit(-1);
+                }
+            }
+
+            private void commit(long contentLength) {
+                committed = true;
+                headBuffer = buffers.acquire();
+                try {
+                    pendingHead = renderHead(headBuffer, contentLength);
+                } catch (BufferOverflowException tooLarge) {
+                    pendingHead = renderHead(ByteBuffer.allocate(estimatedHeadSize()), contentLength);
+                }
+            }
+
+            private ByteBuffer renderHead(ByteBuffer head, long contentLength) {
+                put(head, "HTTP/1.1 ").put(head, String.valueOf(response.statusCode()))
+                                       .put(head, " ").put(head, response.statusDescription()).crlf(head);
+                response.forEachHeader((name, value) -> {
+                    if (chunked && name.equalsIgnoreCase(TRANSFER_ENCODING)) return;
+                    if (contentLength >= 0 && name.equalsIgnoreCase(CONTENT_LENGTH)) return;
+                    if (name.equalsIgnoreCase(CONNECTION)) return;
+                    put(head, name).put(head, ": ").put(head, value).crlf(head);
+                });
+                if (contentLength >= 0) put(head, CONTENT_LENGTH).put(head, ": ").put(head, String.valueOf(contentLength)).crlf(head);
+                if (chunked) put(head, TRANSFER_ENCODING).put(head, ": chunked").crlf(head);
+                if (!keepAlive) put(head, CONNECTION).put(head, ": close").crlf(head);
+                else if (!this.head.http11()) put(head, CONNECTION).put(head, ": keep-alive").crlf(head);
+                crlf(head);
+                return head.flip();
+            }
+
+            private int estimatedHeadSize() {
+                int[] size = { 256 };
+                response.forEachHeader((name, value) -> size[0] += name.length() + value.length() + 4);
+                return size[0];
+            }
+
+            private ResponseStream put(ByteBuffer head, String text) {
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    // Never let a header value break out of its line
+                    head.put(c == '\r' || c == '\n' ? (byte) ' ' : c > 0xff ? (byte) '?' : (byte) c);
+                }
+                return this;
+            }
+
+            private void crlf(ByteBuffer head) {
+                head.put(CRLF);
+            }
+        }
+    }
+
+    private static class FormTooLarge extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        FormTooLarge() {
+            super("Form content exceeds " + MAX_FORM_SIZE + " bytes", null, false, false);
+        }
+    }
+}
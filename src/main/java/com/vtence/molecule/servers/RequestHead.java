@@ -0,0 +1,244 @@
+package com.vtence.molecule.servers;
+
+import com.vtence.molecule.helpers.Headers;
+import com.vtence.molecule.http.HttpMethod;
+import com.vtence.molecule.http.HttpStatus;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.vtence.molecule.http.HeaderNames.CONNECTION;
+import static com.vtence.molecule.http.HeaderNames.EXPECT;
+import static com.vtence.molecule.http.HttpStatus.BAD_REQUEST;
+import static com.vtence.molecule.http.HttpStatus.HTTP_VERSION_NOT_SUPPORTED;
+import static com.vtence.molecule.http.HttpStatus.NOT_IMPLEMENTED;
+import static com.vtence.molecule.http.HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * The request line and headers of an HTTP/1.x request, parsed straight from a connection input buffer.
+ * <p>
+ * Common header names resolve to shared constants and the head is copied once into a per-thread scratch
+ * array, so parsing allocates little more than the header values themselves.
+ * </p>
+ */
+final class RequestHead {
+    private static final int MAX_HEADERS = 100;
+    // Standard header names, by length
+    private static final String[][] KNOWN_NAMES = knownNames();
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[4096]);
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte SP = ' ';
+    private static final byte HT = '\t';
+
+    final HttpMethod method;
+    final String target;
+    final String protocol;
+
+    private final String[] names;
+    private final String[] values;
+    private final int count;
+
+    static class Malformed extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final HttpStatus status;
+
+        Malformed(HttpStatus status) {
+            super(status.reason);
+            this.status = status;
+        }
+    }
+
+    private RequestHead(HttpMethod method, String target, String protocol, String[] names, String[] values, int count) {
+        this.method = method;
+        this.target = target;
+        this.protocol = protocol;
+        this.names = names;
+        this.values = values;
+        this.count = count;
+    }
+
+    /**
+     * Parses a request head from the bytes available in the buffer.
+     *
+     * @param in a buffer ready to be read from
+     * @return the request head, consumed from the buffer, or null if the buffer does not hold a complete head yet
+     * @throws Malformed if the head is not a valid HTTP/1.x request head
+     */
+    static RequestHead parse(ByteBuffer in) throws Malformed {
+        skipEmptyLines(in);
+        int start = in.position();
+        int end = endOfHead(in, start, in.limit());
+        if (end < 0) return null;
+
+        byte[] head = scratch(end - start);
+        in.get(head, 0, end - start);
+        return parse(head, end - start);
+    }
+
+    private static void skipEmptyLines(ByteBuffer in) {
+        while (in.hasRemaining() && (in.get(in.position()) == CR || in.get(in.position()) == LF)) {
+            in.position(in.position() + 1);
+        }
+    }
+
+    private static int endOfHead(ByteBuffer in, int start, int limit) {
+        for (int i = start; i < limit; i++) {
+            if (in.get(i) != LF) continue;
+            if (i + 1 < limit && in.get(i + 1) == LF) return i + 2;
+            if (i + 2 < limit && in.get(i + 1) == CR && in.get(i + 2) == LF) return i + 3;
+        }
+        return -1;
+    }
+
+    private static byte[] scratch(int size) {
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < size) {
+            scratch = new byte[size];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
+    private static RequestHead parse(byte[] head, int length) throws Malformed {
+        int lineEnd = endOfLine(head, 0, length);
+        int methodEnd = indexOf(head, 0, lineEnd, SP);
+        int targetEnd = indexOf(head, methodEnd + 1, lineEnd, SP);
+        if (methodEnd <= 0 || targetEnd <= methodEnd + 1) throw new Malformed(BAD_REQUEST);
+
+        var method = methodOf(head, methodEnd);
+        var target = new String(head, methodEnd + 1, targetEnd - methodEnd - 1, ISO_8859_1);
+        var protocol = protocolOf(head, targetEnd + 1, lineEnd);
+
+        var names = new String[16];
+        var values = new String[16];
+        int count = 0;
+        int lineStart = next(head, lineEnd);
+        while ((lineEnd = endOfLine(head, lineStart, length)) > lineStart) {
+            if (head[lineStart] == SP || head[lineStart] == HT) throw new Malformed(BAD_REQUEST);
+            if (count == MAX_HEADERS) throw new Malformed(REQUEST_HEADER_FIELDS_TOO_LARGE);
+            if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+
+            int colon = indexOf(head, lineStart, lineEnd, (byte) ':');
+            if (colon <= lineStart || head[colon - 1] == SP || head[colon - 1] == HT) throw new Malformed(BAD_REQUEST);
+            names[count] = nameOf(head, lineStart, colon);
+            values[count] = valueOf(head, colon + 1, lineEnd);
+            count++;
+            lineStart = next(head, lineEnd);
+        }
+
+        return new RequestHead(method, target, protocol, names, values, count);
+    }
+
+    private static int endOfLine(byte[] head, int from, int length) {
+        int lf = indexOf(head, from, length, LF);
+        return lf > from && head[lf - 1] == CR ? lf - 1 : lf;
+    }
+
+    private static int next(byte[] head, int lineEnd) {
+        return head[lineEnd] == CR ? lineEnd + 2 : lineEnd + 1;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) return i;
+        }
+        return -1;
+    }
+
+    private static HttpMethod methodOf(byte[] head, int length) throws Malformed {
+        for (HttpMethod method : HttpMethod.values()) {
+            if (matches(method.name(), head, 0, length, false)) return method;
+        }
+        throw new Malformed(NOT_IMPLEMENTED);
+    }
+
+    private static String protocolOf(byte[] head, int from, int to) throws Malformed {
+        if (matches("HTTP/1.1", head, from, to, false)) return "HTTP/1.1";
+        if (matches("HTTP/1.0", head, from, to, false)) return "HTTP/1.0";
+        if (to - from == 8 && matches("HTTP/", head, from, from + 5, false)) throw new Malformed(HTTP_VERSION_NOT_SUPPORTED);
+        throw new Malformed(BAD_REQUEST);
+    }
+
+    private static String nameOf(byte[] head, int from, int to) {
+        int length = to - from;
+        if (length < KNOWN_NAMES.length) {
+            for (String known : KNOWN_NAMES[length]) {
+                if (matches(known, head, from, to, true)) return known;
+            }
+        }
+        return new String(head, from, to - from, ISO_8859_1);
+    }
+
+    private static String[][] knownNames() {
+        var names = Headers.standardNames();
+        int longest = names.stream().mapToInt(String::length).max().orElse(0);
+        var byLength = new String[longest + 1][0];
+        for (String name : names) {
+            var sameLength = Arrays.copyOf(byLength[name.length()], byLength[name.length()].length + 1);
+            sameLength[sameLength.length - 1] = name;
+            byLength[name.length()] = sameLength;
+        }
+        return byLength;
+    }
+
+    private static String valueOf(byte[] head, int from, int to) {
+        while (from < to && (head[from] == SP || head[from] == HT)) from++;
+        while (to > from && (head[to - 1] == SP || head[to - 1] == HT)) to--;
+        return new String(head, from, to - from, ISO_8859_1);
+    }
+
+    private static boolean matches(String text, byte[] bytes, int from, int to, boolean ignoreCase) {
+        if (to - from != text.length()) return false;
+        for (int i = 0; i < text.length(); i++) {
+            int expected = text.charAt(i);
+            int actual = bytes[from + i];
+            if (expected == actual) continue;
+            if (!ignoreCase || Character.toLowerCase(expected) != Character.toLowerCase(actual)) return false;
+        }
+        return true;
+    }
+
+    String header(String name) {
+        for (int i = 0; i < count; i++) {
+            if (names[i] == name || names[i].equalsIgnoreCase(name)) return values[i];
+        }
+        return null;
+    }
+
+    boolean hasToken(String name, String token) {
+        for (int i = 0; i < count; i++) {
+            if (!names[i].equalsIgnoreCase(name)) continue;
+            for (String value : values[i].split(",")) {
+                if (value.trim().equalsIgnoreCase(token)) return true;
+            }
+        }
+        return false;
+    }
+
+    Headers headers() {
+        var headers = new Headers();
+        for (int i = 0; i < count; i++) {
+            headers.add(names[i], values[i]);
+        }
+        return headers;
+    }
+
+    boolean http11() {
+        return protocol.equals("HTTP/1.1");
+    }
+
+    boolean keepAlive() {
+        return http11() ? !hasToken(CONNECTION, "close") : hasToken(CONNECTION, "keep-alive");
+    }
+
+    boolean expectsContinue() {
+        return http11() && hasToken(EXPECT, "100-continue");
+    }
+}
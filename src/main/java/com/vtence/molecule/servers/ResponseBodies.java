@@ -0,0 +1,15 @@
+package com.vtence.molecule.servers;
+
+import com.vtence.molecule.http.HttpMethod;
+
+import static com.vtence.molecule.http.HttpMethod.HEAD;
+
+final class ResponseBodies {
+
+    private ResponseBodies() {}
+
+    // Responses to HEAD requests, as well as informational, 204 and 304 responses, never have content
+    static boolean allowed(HttpMethod method, int status) {
+        return method != HEAD && status >= 200 && status != 204 && status != 304;
+    }
+}
@@ -0,0 +1,131 @@
+package com.vtence.molecule.servers;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+
+import static javax.net.ssl.SSLEngineResult.HandshakeStatus.FINISHED;
+import static javax.net.ssl.SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING;
+
+/**
+ * A TLS session over a socket channel in blocking mode. The handshake happens on first use.
+ */
+final class SecureChannel implements ByteChannel {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private final ByteBuffer netIn;
+    private final ByteBuffer netOut;
+    private final ByteBuffer appIn;
+
+    SecureChannel(SocketChannel channel, SSLEngine engine) {
+        this.channel = channel;
+        this.engine = engine;
+        var session = engine.getSession();
+        this.netIn = ByteBuffer.allocateDirect(session.getPacketBufferSize());
+        this.netOut = ByteBuffer.allocateDirect(session.getPacketBufferSize());
+        this.appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+        this.appIn.flip();
+    }
+
+    boolean hasBufferedInput() {
+        return appIn.hasRemaining() || netIn.position() > 0;
+    }
+
+    public int read(ByteBuffer dst) throws IOException {
+        while (!appIn.hasRemaining()) {
+            if (handshaking()) handshake();
+            if (!unwrap()) return -1;
+        }
+        int count = Math.min(appIn.remaining(), dst.remaining());
+        var slice = appIn.duplicate();
+        slice.limit(slice.position() + count);
+        dst.put(slice);
+        appIn.position(appIn.position() + count);
+        return count;
+    }
+
+    public int write(ByteBuffer src) throws IOException {
+        if (handshaking()) handshake();
+        int written = 0;
+        while (src.hasRemaining()) {
+            written += wrap(src);
+            if (handshaking()) handshake();
+        }
+        return written;
+    }
+
+    private boolean handshaking() {
+        var status = engine.getHandshakeStatus();
+        return status != NOT_HANDSHAKING && status != FINISHED;
+    }
+
+    private void handshake() throws IOException {
+        while (true) {
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK:
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) task.run();
+                    break;
+                case NEED_WRAP:
+                    wrap(EMPTY);
+                    break;
+                case NEED_UNWRAP:
+                case NEED_UNWRAP_AGAIN:
+                    if (!unwrap()) throw new EOFException("Connection closed during TLS handshake");
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    private boolean unwrap() throws IOException {
+        SSLEngineResult result;
+        netIn.flip();
+        appIn.compact();
+        try {
+            result = engine.unwrap(netIn, appIn);
+        } finally {
+            netIn.compact();
+            appIn.flip();
+        }
+
+        switch (result.getStatus()) {
+            case BUFFER_UNDERFLOW:
+                if (!netIn.hasRemaining()) throw new SSLException("TLS record exceeds packet buffer size");
+                return channel.read(netIn) >= 0;
+            case BUFFER_OVERFLOW:
+                throw new SSLException("TLS record exceeds application buffer size");
+            case CLOSED:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private int wrap(ByteBuffer src) throws IOException {
+        netOut.clear();
+        SSLEngineResult result = engine.wrap(src, netOut);
+        if (result.getStatus() == SSLEngineResult.Status.CLOSED && result.bytesProduced() == 0) {
+            throw new SSLException("TLS session closed");
+        }
+        netOut.flip();
+        while (netOut.hasRemaining()) channel.write(netOut);
+        return result.bytesConsumed();
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -11,7 +11,7 @@ import static java.util.stream.Collectors.toList;
 
 public final class Servers {
 
-    private static final List<String> SUPPORTED = asList("Undertow", "Simple");
+    private static final List<String> SUPPORTED = asList("Undertow", "Simple", "Nio");
 
     private static final List<? extends Class<? extends Server>> AVAILABLE = SUPPORTED.stream()
                                                                                       .map(Servers::loadClass)
@@ -20,7 +20,7 @@ public final class Servers {
 
     private static class NoneAvailableException extends RuntimeException {
         public String getMessage() {
-            return "No server implementation is available. Add Simple or Undertow jars to your classpath.";
+            return "No server implementation is available.";
         }
     }
 
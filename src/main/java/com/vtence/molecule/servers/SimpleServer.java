@@ -8,9 +8,13 @@ import com.vtence.molecule.Request;
 import com.vtence.molecule.Response;
 import com.vtence.molecule.Server;
 import com.vtence.molecule.ServerOption;
+import com.vtence.molecule.ServerOptions;
 import com.vtence.molecule.helpers.Headers;
 import com.vtence.molecule.http.HttpMethod;
 import com.vtence.molecule.http.Uri;
+import com.vtence.molecule.lib.ByteContent;
+import com.vtence.molecule.lib.FileRegion;
+import com.vtence.molecule.lib.PublisherBody;
 import org.simpleframework.http.Part;
 import org.simpleframework.http.Query;
 import org.simpleframework.http.core.Container;
@@ -22,28 +26,39 @@ import javax.net.ssl.SSLContext;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
+import static com.vtence.molecule.http.HeaderNames.CONNECTION;
 import static com.vtence.molecule.http.HttpMethod.valueOf;
+import static com.vtence.molecule.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static com.vtence.molecule.http.Scheme.HTTP;
 import static com.vtence.molecule.http.Scheme.HTTPS;
 
 public class SimpleServer implements Server {
 
     private static final int DEFAULT_NUMBER_OF_THREADS = 8;
+    private static final int DEFAULT_NUMBER_OF_SELECTORS = 1;
 
     private final String host;
     private final int port;
     private final int numberOfThreads;
+    private final InFlightRequests inFlight = new InFlightRequests();
 
     private FailureReporter failureReporter = FailureReporter.IGNORE;
     private Connection connection;
+    private ExecutorService workers;
 
     public SimpleServer(String host, int port) {
         this(host, port, DEFAULT_NUMBER_OF_THREADS);
@@ -67,17 +82,56 @@ public class SimpleServer implements Server {
         return host;
     }
 
-    public void run(final Application app, ServerOption... options) throws IOException {
+    public void run(final Application app, ServerOption<?>... options) throws IOException {
         run(app, null, options);
     }
 
-    public void run(final Application app, SSLContext context, ServerOption... options) throws IOException {
-        connection = new SocketConnection(new ContainerSocketProcessor(new ApplicationContainer(app), numberOfThreads));
+    public void run(final Application app, SSLContext context, ServerOption<?>... options) throws IOException {
+        var settings = ServerOptions.of(options);
+        inFlight.resume();
+        connection = new SocketConnection(new ContainerSocketProcessor(containerFor(app, settings),
+                                                                       settings.workerThreads().orElse(numberOfThreads),
+                                                                       settings.ioThreads().orElse(DEFAULT_NUMBER_OF_SELECTORS)));
         connection.connect(new InetSocketAddress(host, port), context);
     }
 
+    private Container containerFor(Application app, ServerOptions options) {
+        Container container = new ApplicationContainer(app);
+        var executor = executorFor(options);
+        if (executor != null) container = new DispatchingContainer(container, executor);
+        return new DrainingContainer(container);
+    }
+
+    private Executor executorFor(ServerOptions options) {
+        if (options.executor().isPresent()) return options.executor().get();
+        if (options.queueSize().isEmpty()) return null;
+
+        // Simple's own pool has an unbounded queue, so we need our own pool
+        workers = Workers.boundedPool("simple",
+                                      options.workerThreads().orElse(numberOfThreads),
+                                      options.queueSize().getAsInt());
+        return workers;
+    }
+
     public void shutdown() throws IOException {
         if (connection != null) connection.close();
+        if (workers != null) workers.shutdown();
+    }
+
+    // Simple cannot stop accepting connections without closing them all,
+    // so we turn away new requests until in-flight ones complete
+    public void shutdown(Duration timeout) throws IOException {
+        inFlight.drain();
+        inFlight.awaitCompletion(timeout);
+        shutdown();
+    }
+
+    public int inFlightRequests() {
+        return inFlight.count();
+    }
+
+    private static void closeConnection(org.simpleframework.http.Response resp) {
+        resp.setValue(CONNECTION, "close");
     }
 
     public class ApplicationContainer implements Container {
@@ -92,9 +146,71 @@ public class SimpleServer implements Server {
         }
     }
 
+    private class DrainingContainer implements Container {
+        private final Container container;
+
+        public DrainingContainer(Container container) {
+            this.container = container;
+        }
+
+        public void handle(org.simpleframework.http.Request req, org.simpleframework.http.Response resp) {
+            if (inFlight.draining()) {
+                resp.setCode(SERVICE_UNAVAILABLE.code);
+                resp.setDescription(SERVICE_UNAVAILABLE.reason);
+                closeConnection(resp);
+                close(resp);
+                return;
+            }
+            inFlight.started();
+            container.handle(req, resp);
+        }
+
+        private void close(org.simpleframework.http.Response resp) {
+            try {
+                resp.close();
+            } catch (IOException e) {
+                failureReporter.errorOccurred(e);
+            }
+        }
+    }
+
+    private class DispatchingContainer implements Container {
+        private final Container container;
+        private final Executor executor;
+
+        public DispatchingContainer(Container container, Executor executor) {
+            this.container = container;
+            this.executor = executor;
+        }
+
+        public void handle(org.simpleframework.http.Request req, org.simpleframework.http.Response resp) {
+            try {
+                executor.execute(() -> container.handle(req, resp));
+            } catch (RejectedExecutionException overloaded) {
+                failureReporter.errorOccurred(overloaded);
+                resp.setCode(SERVICE_UNAVAILABLE.code);
+                resp.setDescription(SERVICE_UNAVAILABLE.reason);
+                close(resp);
+            }
+        }
+
+        private void close(org.simpleframework.http.Response resp) {
+            try {
+                resp.close();
+            } catch (IOException e) {
+                failureReporter.errorOccurred(e);
+            } finally {
+                inFlight.completed();
+            }
+        }
+    }
+
     private class RequestHandler implements Container {
-        private final List<Closeable> resources = new ArrayList<>();
+        // Request data is read on demand, possibly from application threads
+        private final List<Closeable> resources = new CopyOnWriteArrayList<>();
         private final Application app;
+        // When the body is published over time, the response closes once publishing completes
+        private volatile boolean streaming;
 
         public RequestHandler(Application app) {
             this.app = app;
@@ -103,9 +219,11 @@ public class SimpleServer implements Server {
         public void handle(org.simpleframework.http.Request req, org.simpleframework.http.Response resp) {
             try {
                 app.handle(asRequest(req))
-                   .whenSuccessful(transferTo(resp))
+                   .whenSuccessful(transferTo(req, resp))
                    .whenFailed((result, error) -> failureReporter.errorOccurred(error))
-                   .whenComplete((result, error) -> closeAll(resp));
+                   .whenComplete((result, error) -> {
+                       if (!streaming) closeAll(resp);
+                   });
             } catch (Throwable failure) {
                 failureReporter.errorOccurred(failure);
                 closeAll(resp);
@@ -116,20 +234,33 @@ public class SimpleServer implements Server {
             return makeRequest(req)
                     .remoteIp(req.getClientAddress().getAddress().getHostAddress())
                     .remotePort(req.getClientAddress().getPort())
-                    .remoteHost(req.getClientAddress().getHostName())
+                    .remoteHost(req.getClientAddress()::getHostName)
                     .timestamp(req.getRequestTime())
                     .protocol(String.format("HTTP/%s.%s", req.getMajor(), req.getMinor()))
                     .secure(req.isSecure())
                     .body(readBody(req));
         }
 
-        private Request makeRequest(org.simpleframework.http.Request req) throws IOException {
+        private Request makeRequest(org.simpleframework.http.Request req) {
+            // Form data comes from the body, so it has to be parsed before the application gets to read the body
+            if (hasFormData(req)) {
+                var parameters = readParameters(req);
+                var parts = readMultiPartData(req);
+                return new Request(getMethod(req), reconstructUri(req), getProtocol(req),
+                                   () -> readHeaders(req), () -> parameters, () -> parts);
+            }
             return new Request(getMethod(req),
                                reconstructUri(req),
                                getProtocol(req),
-                               readHeaders(req),
-                               readParameters(req),
-                               readMultiPartData(req));
+                               () -> readHeaders(req),
+                               () -> readParameters(req),
+                               () -> readMultiPartData(req));
+        }
+
+        private boolean hasFormData(org.simpleframework.http.Request req) {
+            var contentType = req.getValue("Content-Type");
+            return contentType != null && (contentType.startsWith("application/x-www-form-urlencoded")
+                                           || contentType.startsWith("multipart/form-data"));
         }
 
         private String getProtocol(org.simpleframework.http.Request req) {
@@ -173,10 +304,10 @@ public class SimpleServer implements Server {
             return parameters;
         }
 
-        private List<BodyPart> readMultiPartData(org.simpleframework.http.Request req) throws IOException {
+        private List<BodyPart> readMultiPartData(org.simpleframework.http.Request req) {
             var parts = new ArrayList<BodyPart>();
             for (Part part : req.getParts()) {
-                parts.add(new BodyPart().content(track(part.getInputStream()))
+                parts.add(new BodyPart().content(track(contentOf(part)))
                                         .contentType(contentTypeOf(part))
                                         .name(part.getName())
                                         .filename(part.getFileName()));
@@ -184,6 +315,14 @@ public class SimpleServer implements Server {
             return parts;
         }
 
+        private InputStream contentOf(Part part) {
+            try {
+                return part.getInputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
         private String contentTypeOf(Part part) {
             return part.getContentType() != null ? part.getContentType().toString() : null;
         }
@@ -192,20 +331,22 @@ public class SimpleServer implements Server {
             return track(req.getInputStream());
         }
 
-        private Consumer<Response> transferTo(org.simpleframework.http.Response httpResponse) {
+        private Consumer<Response> transferTo(org.simpleframework.http.Request req,
+                                              org.simpleframework.http.Response httpResponse) {
             return response -> {
                 try {
-                    commit(httpResponse, response);
+                    commit(req, httpResponse, response);
                 } catch (IOException e) {
                     throw new CompletionException(e);
                 }
             };
         }
 
-        private void commit(org.simpleframework.http.Response httpResponse, Response response) throws IOException {
+        private void commit(org.simpleframework.http.Request req, org.simpleframework.http.Response httpResponse,
+                            Response response) throws IOException {
             setStatusLine(httpResponse, response);
             setHeaders(httpResponse, response);
-            writeBody(httpResponse, response);
+            writeBody(req, httpResponse, response);
         }
 
         private void setStatusLine(org.simpleframework.http.Response httpResponse, Response response) {
@@ -214,14 +355,57 @@ public class SimpleServer implements Server {
         }
 
         private void setHeaders(org.simpleframework.http.Response httpResponse, Response response) {
-            response.headerNames().forEach(
-                    name -> response.headers(name).forEach(
-                            value -> httpResponse.addValue(name, value)));
+            response.forEachHeader(httpResponse::addValue);
+            // Let clients know they need to reconnect elsewhere
+            if (inFlight.draining()) closeConnection(httpResponse);
         }
 
-        private void writeBody(org.simpleframework.http.Response httpResponse, Response response) throws IOException {
-            try(Body body = response.body()) {
-                body.writeTo(httpResponse.getOutputStream(), response.charset());
+        private void writeBody(org.simpleframework.http.Request req, org.simpleframework.http.Response httpResponse,
+                               Response response) throws IOException {
+            var content = response.body();
+            if (content instanceof PublisherBody) {
+                // Subscribing to content we can't send would only wait for it, possibly forever
+                if (ResponseBodies.allowed(getMethod(req), response.statusCode())) {
+                    stream(req, httpResponse, track((PublisherBody) content));
+                } else {
+                    content.close();
+                }
+                return;
+            }
+
+            try(Body body = content) {
+                if (body instanceof FileRegion) {
+                    ((FileRegion) body).transferTo(httpResponse.getByteChannel());
+                } else if (body instanceof ByteContent
+                           && ((ByteContent) body).buffered(response.charset())) {
+                    ((ByteContent) body).writeTo(httpResponse.getByteChannel(), response.charset());
+                } else {
+                    body.writeTo(httpResponse.getOutputStream(), response.charset());
+                }
+            }
+        }
+
+        private void stream(org.simpleframework.http.Request req, org.simpleframework.http.Response httpResponse,
+                            PublisherBody body) throws IOException {
+            streaming = true;
+            body.transferTo(new FlushingChannel(httpResponse.getOutputStream()))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) abort(req, error);
+                    else closeAll(httpResponse);
+                });
+        }
+
+        // The client can only tell the content is incomplete if we close the connection
+        // without closing the response, which would write the last chunk
+        private void abort(org.simpleframework.http.Request req, Throwable error) {
+            failureReporter.errorOccurred(error);
+            resources.forEach(this::close);
+            try {
+                req.getChannel().getSocket().close();
+            } catch (IOException ignored) {
+                // nothing more we can do
+            } finally {
+                inFlight.completed();
             }
         }
 
@@ -233,6 +417,7 @@ public class SimpleServer implements Server {
         private void closeAll(org.simpleframework.http.Response resp) {
             resources.forEach(this::close);
             close(resp);
+            inFlight.completed();
         }
 
         private void close(org.simpleframework.http.Response resp) {
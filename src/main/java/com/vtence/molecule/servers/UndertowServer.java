@@ -3,8 +3,18 @@ package com.vtence.molecule.servers;
 import com.vtence.molecule.*;
 import com.vtence.molecule.helpers.Headers;
 import com.vtence.molecule.http.HttpMethod;
+import com.vtence.molecule.http.HttpStatus;
 import com.vtence.molecule.http.Uri;
+import com.vtence.molecule.lib.BufferPool;
+import com.vtence.molecule.lib.ByteContent;
+import com.vtence.molecule.lib.ByteRangesBody;
+import com.vtence.molecule.lib.FileRegion;
+import com.vtence.molecule.lib.PublisherBody;
 import io.undertow.Undertow;
+import io.undertow.io.BufferWritableOutputStream;
+import io.undertow.io.IoCallback;
+import io.undertow.io.Receiver;
+import io.undertow.io.Sender;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.handlers.form.FormData;
@@ -12,31 +22,57 @@ import io.undertow.server.handlers.form.FormDataParser;
 import io.undertow.server.handlers.form.FormEncodedDataDefinition;
 import io.undertow.server.handlers.form.MultiPartParserDefinition;
 import io.undertow.util.HeaderValues;
+import io.undertow.util.HttpString;
+import io.undertow.util.SameThreadExecutor;
 import org.xnio.IoUtils;
 
 import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+import static com.vtence.molecule.ServerOption.HTTP_2;
+import static com.vtence.molecule.ServerOption.LOGGING;
+import static com.vtence.molecule.ServerOption.NON_BLOCKING;
 import static com.vtence.molecule.http.HttpMethod.valueOf;
+import static com.vtence.molecule.http.HttpStatus.PAYLOAD_TOO_LARGE;
 import static io.undertow.UndertowOptions.ENABLE_HTTP2;
+import static io.undertow.util.Headers.CONTENT_TYPE;
 import static io.undertow.util.HttpString.tryFromString;
+import static java.nio.file.StandardOpenOption.READ;
 import static java.util.logging.Level.OFF;
 
 public class UndertowServer implements Server {
 
+    // Standard header names resolved to Undertow's own tokens, keyed by the very instances responses carry
+    private static final Map<String, HttpString> HEADER_NAMES = headerNames();
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_BUFFERED_BODY = 2 * 1024 * 1024;
+
     private final String host;
     private final int port;
+    private final InFlightRequests inFlight = new InFlightRequests();
 
     private Undertow server;
+    private ExecutorService workers;
     private FailureReporter failureReporter = FailureReporter.IGNORE;
 
     public UndertowServer(String host, int port) {
@@ -56,24 +92,44 @@ public class UndertowServer implements Server {
         return host;
     }
 
-    public void run(final Application app, ServerOption... options) throws IOException {
-        start(Undertow.builder().addHttpListener(port, host), app, Set.of(options));
+    public void run(final Application app, ServerOption<?>... options) throws IOException {
+        start(Undertow.builder().addHttpListener(port, host), app, ServerOptions.of(options));
     }
 
-    public void run(final Application app, SSLContext context, ServerOption... options) throws IOException {
-        start(Undertow.builder().addHttpsListener(port, host, context), app, Set.of(options));
+    public void run(final Application app, SSLContext context, ServerOption<?>... options) throws IOException {
+        start(Undertow.builder().addHttpsListener(port, host, context), app, ServerOptions.of(options));
     }
 
-    private void start(Undertow.Builder builder, Application app, Set<ServerOption> options) {
-        if (!options.contains(ServerOption.LOGGING))
+    private void start(Undertow.Builder builder, Application app, ServerOptions options) {
+        if (!options.enabled(LOGGING))
             silenceLogging();
 
-        server = builder.setHandler(new DispatchHandler(app))
-                        .setServerOption(ENABLE_HTTP2, options.contains(ServerOption.HTTP_2))
+        options.ioThreads().ifPresent(builder::setIoThreads);
+        options.workerThreads().ifPresent(builder::setWorkerThreads);
+
+        server = builder.setHandler(dispatcherFor(app, options))
+                        .setServerOption(ENABLE_HTTP2, options.enabled(HTTP_2))
                         .build();
+        inFlight.resume();
         server.start();
     }
 
+    private HttpHandler dispatcherFor(Application app, ServerOptions options) {
+        var executor = executorFor(options);
+        var dispatcher = new DispatchHandler(app, executor);
+        return options.enabled(NON_BLOCKING) ? new NonBlockingDispatchHandler(app, executor, dispatcher) : dispatcher;
+    }
+
+    private Executor executorFor(ServerOptions options) {
+        if (options.executor().isPresent()) return options.executor().get();
+        if (options.queueSize().isEmpty()) return null;
+
+        // Undertow's default pool has an unbounded queue, so we need our own pool
+        int threads = options.workerThreads().orElse(options.ioThreads().orElse(Workers.defaultIoThreads()) * 8);
+        workers = Workers.boundedPool("undertow", threads, options.queueSize().getAsInt());
+        return workers;
+    }
+
     private void silenceLogging() {
         silenceLogger("org.xnio");
         silenceLogger("io.undertow");
@@ -88,57 +144,156 @@ public class UndertowServer implements Server {
 
     public void shutdown()  {
         if (server != null) server.stop();
+        if (workers != null) workers.shutdown();
+    }
+
+    public void shutdown(Duration timeout) {
+        if (server != null) {
+            inFlight.drain();
+            server.getListenerInfo().forEach(Undertow.ListenerInfo::suspend);
+            inFlight.awaitCompletion(timeout);
+        }
+        shutdown();
+    }
+
+    public int inFlightRequests() {
+        return inFlight.count();
+    }
+
+    private static HttpString headerName(String name) {
+        var token = HEADER_NAMES.get(name);
+        return token != null ? token : tryFromString(name);
+    }
+
+    private static Map<String, HttpString> headerNames() {
+        var tokens = new IdentityHashMap<String, HttpString>();
+        for (String name : Headers.standardNames()) {
+            tokens.put(name, tryFromString(name));
+        }
+        return tokens;
     }
 
     private class DispatchHandler implements HttpHandler {
         private final Application app;
+        private final Executor executor;
 
-        public DispatchHandler(Application app) {
+        public DispatchHandler(Application app, Executor executor) {
             this.app = app;
+            this.executor = executor;
         }
 
         public void handleRequest(HttpServerExchange exchange) {
             exchange.startBlocking();
-            exchange.dispatch(() -> new RequestHandler(app).handleRequest(exchange));
+            dispatch(exchange, executor, () -> new RequestHandler(app).handleRequest(exchange));
         }
     }
 
-    private class RequestHandler implements HttpHandler {
-        private final List<Closeable> resources = new ArrayList<>();
+    private static void dispatch(HttpServerExchange exchange, Executor executor, Runnable task) {
+        if (executor != null) {
+            exchange.dispatch(executor, task);
+        } else {
+            exchange.dispatch(task);
+        }
+    }
+
+    private class NonBlockingDispatchHandler implements HttpHandler {
         private final Application app;
+        private final Executor executor;
+        private final HttpHandler blockingDispatcher;
+
+        public NonBlockingDispatchHandler(Application app, Executor executor, HttpHandler blockingDispatcher) {
+            this.app = app;
+            this.executor = executor;
+            this.blockingDispatcher = blockingDispatcher;
+        }
+
+        public void handleRequest(HttpServerExchange exchange) throws Exception {
+            // Form data can only be parsed using blocking reads, and large bodies are better streamed to the application
+            if (hasFormData(exchange) || exchange.getRequestContentLength() > MAX_BUFFERED_BODY) {
+                blockingDispatcher.handleRequest(exchange);
+                return;
+            }
+
+            // Bodies of unknown length are buffered as they come, but only up to the limit
+            var receiver = exchange.getRequestReceiver();
+            receiver.setMaxBufferSize(MAX_BUFFERED_BODY);
+            receiver.receiveFullBytes(
+                    (ex, content) -> ex.dispatch(SameThreadExecutor.INSTANCE,
+                                                 () -> new NonBlockingRequestHandler(app, executor, content).handleRequest(ex)),
+                    (ex, error) -> {
+                        if (error instanceof Receiver.RequestToLargeException) {
+                            reject(ex, PAYLOAD_TOO_LARGE);
+                        } else {
+                            failureReporter.errorOccurred(error);
+                            IoUtils.safeClose(ex.getConnection());
+                        }
+                    });
+        }
+
+        // The rest of the body is never read, so the connection cannot be reused
+        private void reject(HttpServerExchange exchange, HttpStatus status) {
+            exchange.setStatusCode(status.code);
+            exchange.setReasonPhrase(status.reason);
+            exchange.setPersistent(false);
+            exchange.endExchange();
+        }
+    }
+
+    private static boolean hasFormData(HttpServerExchange exchange) {
+        var contentType = exchange.getRequestHeaders().getFirst(CONTENT_TYPE);
+        return contentType != null && (contentType.startsWith("application/x-www-form-urlencoded")
+                                       || contentType.startsWith("multipart/form-data"));
+    }
+
+    private class RequestHandler implements HttpHandler {
+        // Request data is read on demand, possibly from application threads
+        private final List<Closeable> resources = new CopyOnWriteArrayList<>();
+        final Application app;
+        // When the body is published over time, the exchange ends once publishing completes
+        private volatile boolean streaming;
 
         public RequestHandler(Application app) {
             this.app = app;
         }
 
         public void handleRequest(HttpServerExchange exchange) {
+            inFlight.started();
             try {
                 app.handle(asRequest(exchange))
                    .whenSuccessful(transferTo(exchange))
                    .whenFailed((result, error) -> failureReporter.errorOccurred(error))
-                   .whenComplete((result, error) -> closeAll(exchange));
+                   .whenComplete((result, error) -> {
+                       if (!streaming) closeAll(exchange);
+                   });
             } catch (Throwable failure) {
                 failureReporter.errorOccurred(failure);
                 closeAll(exchange);
             }
         }
 
-        private Request asRequest(HttpServerExchange exchange) throws IOException {
+        Request asRequest(HttpServerExchange exchange) throws IOException {
             return makeRequest(exchange)
                     .remoteIp(exchange.getSourceAddress().getAddress().getHostAddress())
                     .remotePort(exchange.getSourceAddress().getPort())
-                    .remoteHost(exchange.getSourceAddress().getHostName())
+                    .remoteHost(exchange.getSourceAddress()::getHostName)
                     .timestamp(exchange.getRequestStartTime())
                     .protocol(exchange.getProtocol().toString())
                     .secure(exchange.getConnection().getSslSessionInfo() != null)
                     .body(readBody(exchange));
         }
 
-        private Request makeRequest(HttpServerExchange exchange) throws IOException {
+        private Request makeRequest(HttpServerExchange exchange) {
+            // Form data comes from the body, so it has to be parsed before the application gets to read the body
+            if (hasFormData(exchange)) {
+                var parameters = readParameters(exchange);
+                var parts = readParts(exchange);
+                return new Request(getMethod(exchange), reconstructUri(exchange), getProtocol(exchange),
+                                   () -> readHeaders(exchange), () -> parameters, () -> parts);
+            }
             return new Request(getMethod(exchange), reconstructUri(exchange), getProtocol(exchange),
-                               readHeaders(exchange),
-                               readParameters(exchange),
-                               readParts(exchange));
+                               () -> readHeaders(exchange),
+                               () -> readParameters(exchange),
+                               () -> readParts(exchange));
         }
 
         private String getProtocol(HttpServerExchange exchange) {
@@ -168,10 +323,14 @@ public class UndertowServer implements Server {
             return headers;
         }
 
-        private Map<String, List<String>> readParameters(HttpServerExchange exchange) throws IOException {
+        private Map<String, List<String>> readParameters(HttpServerExchange exchange) {
             var parameters = new HashMap<String, List<String>>();
             parameters.putAll(readQueryParameters(exchange));
-            parameters.putAll(readFormParameters(exchange));
+            try {
+                parameters.putAll(readFormParameters(exchange));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
             return parameters;
         }
 
@@ -199,7 +358,15 @@ public class UndertowServer implements Server {
             }
         }
 
-        private List<BodyPart> readParts(HttpServerExchange exchange) throws IOException {
+        private List<BodyPart> readParts(HttpServerExchange exchange) {
+            try {
+                return readMultiPartData(exchange);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private List<BodyPart> readMultiPartData(HttpServerExchange exchange) throws IOException {
             var multipart = new MultiPartParserDefinition();
             multipart.setDefaultEncoding(StandardCharsets.UTF_8.name());
 
@@ -232,7 +399,7 @@ public class UndertowServer implements Server {
             return contentType != null ? contentType.getFirst() : null;
         }
 
-        private InputStream readBody(HttpServerExchange exchange) throws IOException {
+        InputStream readBody(HttpServerExchange exchange) throws IOException {
             return track(exchange.getInputStream());
         }
 
@@ -252,30 +419,74 @@ public class UndertowServer implements Server {
             writeBody(exchange, response);
         }
 
-        private void setStatusLine(HttpServerExchange exchange, Response response) {
+        void setStatusLine(HttpServerExchange exchange, Response response) {
             exchange.setStatusCode(response.statusCode());
             exchange.setReasonPhrase(response.statusDescription());
         }
 
-        private void setHeaders(HttpServerExchange exchange, Response response) {
-            response.headerNames().forEach(name -> {
-                response.headers(name).forEach(
-                        value -> exchange.getResponseHeaders().add(tryFromString(name), value));
-            });
+        void setHeaders(HttpServerExchange exchange, Response response) {
+            var headers = exchange.getResponseHeaders();
+            response.forEachHeader((name, value) -> headers.add(headerName(name), value));
+            // Let clients know they need to reconnect elsewhere
+            if (inFlight.draining()) exchange.setPersistent(false);
         }
 
         private void writeBody(HttpServerExchange exchange, Response response) throws IOException {
-            try (Body body = response.body()) {
-                body.writeTo(exchange.getOutputStream(), response.charset());
+            var content = response.body();
+            if (content instanceof PublisherBody) {
+                // Subscribing to content we can't send would only wait for it, possibly forever
+                if (bodyAllowed(exchange, response)) stream(exchange, track((PublisherBody) content));
+                else content.close();
+                return;
+            }
+
+            try (Body body = content) {
+                var out = exchange.getOutputStream();
+                if (transferable(body) && out instanceof BufferWritableOutputStream) {
+                    ((BufferWritableOutputStream) out).transferFrom(openRegion((FileRegion) body));
+                } else if (body instanceof ByteContent && out instanceof BufferWritableOutputStream
+                           && ((ByteContent) body).buffered(response.charset())) {
+                    ((BufferWritableOutputStream) out).write(((ByteContent) body).buffers(response.charset()));
+                } else {
+                    body.writeTo(out, response.charset());
+                }
             }
         }
 
-        private <T extends Closeable> T track(T resource) {
+        private void stream(HttpServerExchange exchange, PublisherBody body) {
+            streaming = true;
+            body.transferTo(new FlushingChannel(exchange.getOutputStream()))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) abort(exchange, error);
+                    closeAll(exchange);
+                });
+        }
+
+        boolean bodyAllowed(HttpServerExchange exchange, Response response) {
+            return ResponseBodies.allowed(getMethod(exchange), response.statusCode());
+        }
+
+        // The client can only tell the content is incomplete if we close the connection
+        void abort(HttpServerExchange exchange, Throwable error) {
+            failureReporter.errorOccurred(error);
+            IoUtils.safeClose(exchange.getConnection());
+        }
+
+        // Undertow can only transfer a file up to its end
+        boolean transferable(Body body) throws IOException {
+            return body instanceof FileRegion && ((FileRegion) body).toEndOfFile();
+        }
+
+        FileChannel openRegion(FileRegion region) throws IOException {
+            return track(FileChannel.open(region.path(), READ)).position(region.position());
+        }
+
+        <T extends Closeable> T track(T resource) {
             resources.add(resource);
             return resource;
         }
 
-        private void closeAll(HttpServerExchange exchange) {
+        void closeAll(HttpServerExchange exchange) {
             resources.forEach(this::close);
             end(exchange);
         }
@@ -294,6 +505,243 @@ public class UndertowServer implements Server {
             } catch (Throwable t) {
                 failureReporter.errorOccurred(t);
                 IoUtils.safeClose(exchange.getConnection());
+            } finally {
+                inFlight.completed();
+            }
+        }
+    }
+
+    private class NonBlockingRequestHandler extends RequestHandler {
+        private final Executor executor;
+        private final byte[] content;
+
+        public NonBlockingRequestHandler(Application app, Executor executor, byte[] content) {
+            super(app);
+            this.executor = executor;
+            this.content = content;
+        }
+
+        public void handleRequest(HttpServerExchange exchange) {
+            inFlight.started();
+            try {
+                app.handle(asRequest(exchange))
+                   .whenSuccessful(sendTo(exchange))
+                   .whenFailed((result, error) -> {
+                       failureReporter.errorOccurred(error);
+                       inIoThread(exchange, () -> closeAll(exchange));
+                   });
+            } catch (Throwable failure) {
+                failureReporter.errorOccurred(failure);
+                closeAll(exchange);
+            }
+        }
+
+        InputStream readBody(HttpServerExchange exchange) {
+            return new ByteArrayInputStream(content);
+        }
+
+        private Consumer<Response> sendTo(HttpServerExchange exchange) {
+            return response -> inIoThread(exchange, () -> send(exchange, response));
+        }
+
+        private void send(HttpServerExchange exchange, Response response) {
+            try {
+                setStatusLine(exchange, response);
+                setHeaders(exchange, response);
+                var body = track(response.body());
+                if (transferable(body)) {
+                    exchange.getResponseSender().transferFrom(openRegion((FileRegion) body), whenSent());
+                } else if (body instanceof FileRegion) {
+                    sendInChunks(exchange, List.of(body), body.size(response.charset()));
+                } else if (body instanceof ByteRangesBody) {
+                    sendInChunks(exchange, ((ByteRangesBody) body).parts(), body.size(response.charset()));
+                } else if (body instanceof PublisherBody) {
+                    if (bodyAllowed(exchange, response)) {
+                        ((PublisherBody) body).publisher().subscribe(new ContentSender(exchange));
+                    } else {
+                        closeAll(exchange);
+                    }
+                } else if (body instanceof ByteContent) {
+                    exchange.getResponseSender().send(((ByteContent) body).buffers(response.charset()), whenSent());
+                } else {
+                    // Other bodies write themselves to a stream and might block, so they go to a worker
+                    dispatch(exchange, executor, () -> write(exchange, body, response.charset()));
+                }
+            } catch (Throwable failure) {
+                failureReporter.errorOccurred(failure);
+                closeAll(exchange);
+            }
+        }
+
+        // Sending several chunks would otherwise fall back to the chunked transfer coding
+        private void sendInChunks(HttpServerExchange exchange, List<Body> parts, long size) {
+            if (exchange.getResponseContentLength() < 0) exchange.setResponseContentLength(size);
+            new PartSender(exchange, parts).sendNext();
+        }
+
+        private IoCallback whenSent() {
+            return new IoCallback() {
+                public void onComplete(HttpServerExchange exchange, Sender sender) {
+                    closeAll(exchange);
+                }
+
+                public void onException(HttpServerExchange exchange, Sender sender, IOException error) {
+                    failureReporter.errorOccurred(error);
+                    closeAll(exchange);
+                }
+            };
+        }
+
+        // Sends ranges of files a chunk at a time, so neither the heap nor the I/O thread ever holds a whole range.
+        // Each chunk is read once the previous one has gone out.
+        private class PartSender implements IoCallback {
+            private final HttpServerExchange exchange;
+            private final Iterator<Body> parts;
+            private byte[] chunk;
+            private FileChannel file;
+            private long position;
+            private long end;
+
+            public PartSender(HttpServerExchange exchange, List<Body> parts) {
+                this.exchange = exchange;
+                this.parts = parts.iterator();
+            }
+
+            public void sendNext() {
+                try {
+                    while (file == null || position == end) {
+                        if (file != null) {
+                            file.close();
+                            file = null;
+                        }
+                        if (!parts.hasNext()) {
+                            closeAll(exchange);
+                            return;
+                        }
+                        var part = parts.next();
+                        if (part instanceof FileRegion) {
+                            open((FileRegion) part);
+                        } else {
+                            exchange.getResponseSender().send(((ByteContent) part).buffers(StandardCharsets.ISO_8859_1), this);
+                            return;
+                        }
+                    }
+                    exchange.getResponseSender().send(readChunk(), this);
+                } catch (IOException e) {
+                    onException(exchange, exchange.getResponseSender(), e);
+                }
+            }
+
+            private void open(FileRegion region) throws IOException {
+                if (chunk == null) {
+                    var pool = BufferPool.shared();
+                    var buffer = pool.acquire(CHUNK_SIZE);
+                    chunk = buffer;
+                    track(() -> pool.release(buffer));
+                }
+                file = track(FileChannel.open(region.path(), READ));
+                position = region.position();
+                end = position + region.count();
+            }
+
+            private ByteBuffer readChunk() throws IOException {
+                var buffer = ByteBuffer.wrap(chunk, 0, (int) Math.min(chunk.length, end - position));
+                while (buffer.hasRemaining()) {
+                    if (file.read(buffer, position + buffer.position()) < 0) throw new EOFException("File was truncated");
+                }
+                position += buffer.flip().remaining();
+                return buffer;
+            }
+
+            public void onComplete(HttpServerExchange exchange, Sender sender) {
+                sendNext();
+            }
+
+            public void onException(HttpServerExchange exchange, Sender sender, IOException error) {
+                abort(exchange, error);
+                closeAll(exchange);
+            }
+        }
+
+        // Sends content as it is published, requesting more once the sender is done writing.
+        // Everything but requesting more happens on the I/O thread of the exchange.
+        private class ContentSender implements Flow.Subscriber<ByteBuffer> {
+            private final HttpServerExchange exchange;
+            private Flow.Subscription subscription;
+            private boolean sending;
+            private boolean published;
+            private boolean done;
+
+            public ContentSender(HttpServerExchange exchange) {
+                this.exchange = exchange;
+            }
+
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            public void onNext(ByteBuffer content) {
+                inIoThread(exchange, () -> send(content));
+            }
+
+            public void onError(Throwable error) {
+                inIoThread(exchange, () -> fail(error));
+            }
+
+            public void onComplete() {
+                inIoThread(exchange, () -> {
+                    published = true;
+                    if (!sending) finish();
+                });
+            }
+
+            private void send(ByteBuffer content) {
+                if (done) return;
+                sending = true;
+                exchange.getResponseSender().send(content, new IoCallback() {
+                    public void onComplete(HttpServerExchange exchange, Sender sender) {
+                        sending = false;
+                        if (published) finish();
+                        else subscription.request(1);
+                    }
+
+                    public void onException(HttpServerExchange exchange, Sender sender, IOException error) {
+                        subscription.cancel();
+                        fail(error);
+                    }
+                });
+            }
+
+            private void fail(Throwable error) {
+                if (done) return;
+                abort(exchange, error);
+                finish();
+            }
+
+            private void finish() {
+                if (done) return;
+                done = true;
+                closeAll(exchange);
+            }
+        }
+
+        private void write(HttpServerExchange exchange, Body body, Charset charset) {
+            try {
+                exchange.startBlocking();
+                body.writeTo(exchange.getOutputStream(), charset);
+            } catch (Throwable failure) {
+                abort(exchange, failure);
+            } finally {
+                closeAll(exchange);
+            }
+        }
+
+        private void inIoThread(HttpServerExchange exchange, Runnable task) {
+            if (exchange.isInIoThread()) {
+                task.run();
+            } else {
+                exchange.getIoThread().execute(task);
             }
         }
     }
@@ -0,0 +1,33 @@
+package com.vtence.molecule.servers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+final class Workers {
+
+    private Workers() {}
+
+    static int defaultIoThreads() {
+        return Math.max(Runtime.getRuntime().availableProcessors(), 2);
+    }
+
+    static ExecutorService boundedPool(String name, int threads, int queueSize) {
+        return new ThreadPoolExecutor(threads, threads, 0L, MILLISECONDS,
+                                      new ArrayBlockingQueue<>(queueSize), threadsNamed(name));
+    }
+
+    static ExecutorService fixedPool(String name, int threads) {
+        return Executors.newFixedThreadPool(threads, threadsNamed(name));
+    }
+
+    private static ThreadFactory threadsNamed(String name) {
+        var count = new AtomicInteger();
+        return task -> new Thread(task, name + "-worker-" + count.incrementAndGet());
+    }
+}
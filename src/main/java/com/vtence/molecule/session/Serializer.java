@@ -1,7 +1,8 @@
 package com.vtence.molecule.session;
 
+import com.vtence.molecule.lib.PooledOutputStream;
+
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -15,12 +16,12 @@ public class Serializer<T> implements Marshaller<T> {
     }
 
     public byte[] marshall(T data) throws IOException {
-        var buffer = new ByteArrayOutputStream();
-        var output = new ObjectOutputStream(buffer);
-        output.writeObject(data);
-        output.flush();
-        output.close();
-        return buffer.toByteArray();
+        try (var buffer = new PooledOutputStream()) {
+            var output = new ObjectOutputStream(buffer);
+            output.writeObject(data);
+            output.flush();
+            return buffer.toByteArray();
+        }
     }
 
     public T unmarshall(byte[] data) throws Exception {
@@ -0,0 +1,43 @@
+package com.vtence.molecule.lib;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors that run each task on a new virtual thread.
+ * <p>
+ * This is the Java 21 version of the class, packaged in the multi-release part of the jar.
+ * </p>
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {}
+
+    /**
+     * Indicates whether the running JVM supports virtual threads.
+     *
+     * @return true if virtual threads are supported, false otherwise
+     */
+    public static boolean supported() {
+        return true;
+    }
+
+    /**
+     * Indicates whether the given thread is a virtual thread.
+     *
+     * @param thread the thread to check
+     * @return true if the thread is virtual, false otherwise
+     */
+    public static boolean isVirtual(Thread thread) {
+        return thread.isVirtual();
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @return the new executor
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("molecule-", 0).factory());
+    }
+}
@@ -1,5 +1,8 @@
 package com.vtence.molecule;
 
+import com.vtence.molecule.helpers.Headers;
+import com.vtence.molecule.http.HttpMethod;
+import com.vtence.molecule.http.Uri;
 import org.hamcrest.FeatureMatcher;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
@@ -7,7 +10,9 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.vtence.molecule.http.HeaderNames.CONTENT_TYPE;
 import static com.vtence.molecule.http.HeaderNames.HOST;
@@ -33,6 +38,37 @@ public class RequestTest {
         assertThat("default body", Request.get("https://localhost").body(), is(""));
     }
 
+    @Test
+    public void readsHeadersParametersAndPartsOnlyWhenNeeded() {
+        AtomicInteger reads = new AtomicInteger();
+        Request request = new Request(HttpMethod.POST, Uri.of("/"), "HTTP/1.1",
+                                      () -> {
+                                          reads.incrementAndGet();
+                                          Headers headers = new Headers();
+                                          headers.add("Accept", "text/html");
+                                          return headers;
+                                      },
+                                      () -> {
+                                          reads.incrementAndGet();
+                                          return Map.of("name", List.of("value"));
+                                      },
+                                      () -> {
+                                          reads.incrementAndGet();
+                                          return List.of(new BodyPart().name("file"));
+                                      });
+        assertThat("reads before access", reads.get(), is(0));
+
+        assertThat("header", request.header("Accept"), equalTo("text/html"));
+        assertThat("reads after header access", reads.get(), is(1));
+
+        assertThat("parameter", request.parameter("name"), equalTo("value"));
+        request.addParameter("name", "other");
+        assertThat("part", request.part("file"), Matchers.notNullValue());
+        request.header("Accept");
+        request.parameters("name");
+        assertThat("reads after all access", reads.get(), is(3));
+    }
+
     @Test
     public void maintainsAnOrderedListOfParametersWithSameName() {
         Request request = Request.get("/")
@@ -193,6 +229,18 @@ public class RequestTest {
         assertThat("body parts", request.parts(), contains(partWithName("a"), partWithName("c")));
     }
 
+    @Test
+    public void normalizesPathAgainWhenUriChanges() {
+        Request request = Request.get("/products/./42");
+        assertThat("normalized path", request.path(), equalTo("/products/42"));
+
+        request.path("/items/../products/43");
+        assertThat("normalized new path", request.path(), equalTo("/products/43"));
+
+        request.uri(Uri.of("http://www.example.com/products//44"));
+        assertThat("normalized new uri path", request.path(), equalTo("/products/44"));
+    }
+
     @Test
     public void readsHostnameFromHostHeader() {
         Request request = Request.get("http://127.0.0.1")
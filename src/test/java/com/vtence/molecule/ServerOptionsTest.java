@@ -0,0 +1,59 @@
+package com.vtence.molecule;
+
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.Executor;
+
+import static com.vtence.molecule.ServerOption.HTTP_2;
+import static com.vtence.molecule.ServerOption.LOGGING;
+import static com.vtence.molecule.ServerOption.executor;
+import static com.vtence.molecule.ServerOption.ioThreads;
+import static com.vtence.molecule.ServerOption.queueSize;
+import static com.vtence.molecule.ServerOption.workerThreads;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class ServerOptionsTest {
+
+    @Test public void
+    tellsWhichFlagsAreEnabled() {
+        ServerOptions options = ServerOptions.of(HTTP_2);
+
+        assertThat("http/2", options.enabled(HTTP_2), is(true));
+        assertThat("logging", options.enabled(LOGGING), is(false));
+    }
+
+    @Test public void
+    readsValuesOfSettings() {
+        Executor executor = Runnable::run;
+        ServerOptions options = ServerOptions.of(workerThreads(64), ioThreads(4), queueSize(1000), executor(executor));
+
+        assertThat("worker threads", options.workerThreads(), equalTo(OptionalInt.of(64)));
+        assertThat("io threads", options.ioThreads(), equalTo(OptionalInt.of(4)));
+        assertThat("queue size", options.queueSize(), equalTo(OptionalInt.of(1000)));
+        assertThat("executor", options.executor(), equalTo(Optional.of(executor)));
+    }
+
+    @Test public void
+    leavesMissingSettingsEmpty() {
+        ServerOptions options = ServerOptions.of();
+
+        assertThat("worker threads", options.workerThreads(), equalTo(OptionalInt.empty()));
+        assertThat("executor", options.executor(), equalTo(Optional.empty()));
+    }
+
+    @Test public void
+    letsLastSettingWin() {
+        ServerOptions options = ServerOptions.of(workerThreads(8), workerThreads(16));
+
+        assertThat("worker threads", options.workerThreads(), equalTo(OptionalInt.of(16)));
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void
+    rejectsNonPositiveCounts() {
+        workerThreads(0);
+    }
+}
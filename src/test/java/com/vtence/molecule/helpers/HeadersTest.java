@@ -1,15 +1,20 @@
 package com.vtence.molecule.helpers;
 
+import com.vtence.molecule.http.HeaderNames;
 import org.junit.Test;
 
+import java.util.ArrayList;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.emptyIterable;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class HeadersTest {
 
@@ -88,4 +93,32 @@ public class HeadersTest {
         assertThat("Allow", headers.list("Allow"), contains("GET", "HEAD", "OPTIONS"));
         assertThat("Allow", headers.get("Allow"), equalTo("GET, HEAD, OPTIONS"));
     }
-}
\ No newline at end of file
+
+    @Test public void
+    handsEachValueInOrder() {
+        headers.add("Accept", "text/html");
+        headers.add("Cache-Control", "no-cache");
+        headers.add("accept", "text/plain");
+
+        var values = new ArrayList<String>();
+        headers.forEach((name, value) -> values.add(name + ": " + value));
+        assertThat("values", values, contains("accept: text/html", "accept: text/plain", "Cache-Control: no-cache"));
+    }
+
+    @Test public void
+    keepsOrderOfRemainingHeadersOnRemoval() {
+        headers.put("First", "1");
+        headers.put("Second", "2");
+        headers.put("Third", "3");
+
+        headers.remove("second");
+        assertThat("names", headers.names(), contains("First", "Third"));
+        assertThat("headers", headers.size(), equalTo(2));
+    }
+
+    @Test public void
+    providesStandardNamesAsTheirConstants() {
+        assertThat("standard names", Headers.standardNames(), hasItem(sameInstance(HeaderNames.CONTENT_TYPE)));
+        assertThat("standard names", Headers.standardNames(), hasItem(sameInstance(HeaderNames.USER_AGENT)));
+    }
+}
@@ -0,0 +1,54 @@
+package com.vtence.molecule.http;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ByteRangeTest {
+
+    @Test public void
+    parsesBoundedRanges() {
+        assertThat("ranges", ByteRange.parse("bytes=0-99, 200-299", 1000),
+                   contains(new ByteRange(0, 99), new ByteRange(200, 299)));
+    }
+
+    @Test public void
+    parsesOpenAndSuffixRanges() {
+        assertThat("open", ByteRange.parse("bytes=900-", 1000), contains(new ByteRange(900, 999)));
+        assertThat("suffix", ByteRange.parse("bytes=-100", 1000), contains(new ByteRange(900, 999)));
+        assertThat("long suffix", ByteRange.parse("bytes=-5000", 1000), contains(new ByteRange(0, 999)));
+    }
+
+    @Test public void
+    shortensRangesThatExtendPastTheEnd() {
+        assertThat("ranges", ByteRange.parse("bytes=500-5000", 1000), contains(new ByteRange(500, 999)));
+    }
+
+    @Test public void
+    dropsRangesThatStartPastTheEnd() {
+        assertThat("ranges", ByteRange.parse("bytes=1000-1999", 1000), empty());
+    }
+
+    @Test public void
+    mergesOverlappingRanges() {
+        assertThat("ranges", ByteRange.parse("bytes=500-599, 0-99, 50-199, 200-299", 1000),
+                   contains(new ByteRange(0, 299), new ByteRange(500, 599)));
+    }
+
+    @Test public void
+    ignoresInvalidSpecifications() {
+        assertThat("unit", ByteRange.parse("lines=0-10", 1000), nullValue());
+        assertThat("reversed", ByteRange.parse("bytes=10-0", 1000), nullValue());
+        assertThat("garbage", ByteRange.parse("bytes=abc", 1000), nullValue());
+    }
+
+    @Test public void
+    formatsContentRanges() {
+        assertThat("satisfied", new ByteRange(0, 99).contentRange(1000), equalTo("bytes 0-99/1000"));
+        assertThat("unsatisfied", ByteRange.unsatisfied(1000), equalTo("bytes */1000"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.vtence.molecule.lib;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class BufferPoolTest {
+
+    BufferPool pool = new BufferPool(1, 2);
+
+    @Test public void
+    roundsBuffersUpToTheirSizeClass() {
+        assertThat("smallest", pool.acquire(10).length, equalTo(4096));
+        assertThat("rounded", pool.acquire(5000).length, equalTo(8192));
+        assertThat("exact", pool.acquire(65536).length, equalTo(65536));
+    }
+
+    @Test public void
+    reusesReleasedBuffers() {
+        byte[] buffer = pool.acquire(100_000);
+        pool.release(buffer);
+
+        assertThat("reused", pool.acquire(100_000), sameInstance(buffer));
+        assertThat("hits", pool.hits(), equalTo(1L));
+        assertThat("misses", pool.misses(), equalTo(1L));
+        assertThat("hit rate", pool.hitRate(), equalTo(0.5));
+    }
+
+    @Test public void
+    sharesBuffersBetweenThreads() throws Exception {
+        byte[] first = pool.acquire(1024);
+        byte[] second = pool.acquire(1024);
+        pool.release(first);
+        pool.release(second);
+
+        var reused = new byte[1][];
+        Thread other = new Thread(() -> reused[0] = pool.acquire(1024));
+        other.start();
+        other.join();
+        assertThat("reused", reused[0], sameInstance(second));
+    }
+
+    @Test public void
+    doesNotKeepHugeBuffers() {
+        byte[] buffer = pool.acquire(2 * 1024 * 1024);
+        pool.release(buffer);
+
+        assertThat("reused", pool.acquire(2 * 1024 * 1024), not(sameInstance(buffer)));
+        assertThat("hits", pool.hits(), equalTo(0L));
+    }
+
+    @Test public void
+    tracksBytesInUse() {
+        byte[] first = pool.acquire(4096);
+        byte[] second = pool.acquire(8192);
+        assertThat("outstanding", pool.outstandingBytes(), equalTo(12288L));
+
+        pool.release(first);
+        pool.release(second);
+        assertThat("outstanding after release", pool.outstandingBytes(), equalTo(0L));
+    }
+}
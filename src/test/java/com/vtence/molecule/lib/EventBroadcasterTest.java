@@ -0,0 +1,165 @@
+package com.vtence.molecule.lib;
+
+import com.vtence.molecule.Request;
+import com.vtence.molecule.Response;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.vtence.molecule.lib.ServerSentEvent.event;
+import static com.vtence.molecule.testing.ResponseAssert.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class EventBroadcasterTest {
+
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    EventBroadcaster broadcaster = new EventBroadcaster(scheduler, Runnable::run, 2, 10, Duration.ofHours(1));
+
+    @After public void
+    stopBroadcasting() {
+        broadcaster.close();
+        scheduler.shutdown();
+    }
+
+    @Test public void
+    respondsWithAnEventStream() {
+        Response response = broadcaster.subscribe(Request.get("/events"));
+
+        assertThat(response).hasStatusCode(200)
+                            .hasContentType("text/event-stream")
+                            .hasHeader("Cache-Control", "no-cache")
+                            .isDone();
+        assertThat("body", response.body(), instanceOf(PublisherBody.class));
+    }
+
+    @Test public void
+    opensStreamsWithAComment() {
+        var client = listen(broadcaster.open(null), 10);
+
+        assertThat("received", client.received(), equalTo(":\n\n"));
+    }
+
+    @Test public void
+    onlySendsEventsToClientsThatListen() {
+        broadcaster.subscribe(Request.get("/events"));
+        var stream = broadcaster.open(null);
+        assertThat("subscribers", broadcaster.subscribers(), equalTo(0));
+
+        broadcaster.publish(event("before"));
+        var client = listen(stream, 10);
+        broadcaster.publish(event("after"));
+        assertThat("subscribers", broadcaster.subscribers(), equalTo(1));
+        assertThat("received", client.received(), equalTo(":\n\ndata: after\n\n"));
+    }
+
+    @Test public void
+    sendsEventsToAllClients() {
+        var first = listen(broadcaster.open(null), 10);
+        var second = listen(broadcaster.open(null), 10);
+
+        broadcaster.publish(event("Hello"));
+
+        assertThat("first client", first.received(), equalTo(":\n\ndata: Hello\n\n"));
+        assertThat("second client", second.received(), equalTo(":\n\ndata: Hello\n\n"));
+    }
+
+    @Test public void
+    replaysEventsMissedByReconnectingClients() {
+        broadcaster.publish(event("first").id("1"));
+        broadcaster.publish(event("second").id("2"));
+        broadcaster.publish(event("third").id("3"));
+
+        var client = listen(broadcaster.open("1"), 10);
+        assertThat("replayed", client.received(), equalTo(":\n\nid: 2\ndata: second\n\nid: 3\ndata: third\n\n"));
+    }
+
+    @Test public void
+    replaysMoreEventsThanClientsCanFallBehind() {
+        for (int id = 1; id <= 5; id++) {
+            broadcaster.publish(event("event " + id).id(String.valueOf(id)));
+        }
+
+        var client = listen(broadcaster.open("1"), 10);
+        assertThat("completed", client.completed, equalTo(false));
+        assertThat("replayed", client.received(), equalTo(":\n\nid: 2\ndata: event 2\n\nid: 3\ndata: event 3\n\n" +
+                                                          "id: 4\ndata: event 4\n\nid: 5\ndata: event 5\n\n"));
+    }
+
+    @Test public void
+    dropsClientsThatFallTooFarBehind() {
+        var slow = listen(broadcaster.open(null), 0);
+        var fast = listen(broadcaster.open(null), 10);
+
+        broadcaster.publish(event("first"));
+        broadcaster.publish(event("second"));
+        assertThat("subscribers", broadcaster.subscribers(), equalTo(2));
+
+        broadcaster.publish(event("third"));
+        assertThat("slow client completed", slow.completed, equalTo(true));
+        assertThat("slow client received", slow.received(), equalTo(""));
+        assertThat("fast client completed", fast.completed, equalTo(false));
+        assertThat("subscribers", broadcaster.subscribers(), equalTo(1));
+    }
+
+    @Test public void
+    sendsHeartbeatsToIdleClients() {
+        var stream = broadcaster.open(null);
+        var client = listen(stream, 10);
+
+        stream.heartbeat();
+        assertThat("heartbeat", client.received(), equalTo(":\n\n:\n\n"));
+    }
+
+    @Test public void
+    forgetsClientsThatDisconnect() {
+        var client = listen(broadcaster.open(null), 10);
+        client.subscription.cancel();
+
+        assertThat("subscribers", broadcaster.subscribers(), equalTo(0));
+    }
+
+    private Client listen(EventStream stream, long demand) {
+        var client = new Client();
+        stream.subscribe(client);
+        client.request(demand);
+        return client;
+    }
+
+    private static class Client implements Flow.Subscriber<ByteBuffer> {
+        private final StringBuilder content = new StringBuilder();
+        Flow.Subscription subscription;
+        boolean completed;
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        public void request(long n) {
+            if (n > 0) subscription.request(n);
+        }
+
+        public void onNext(ByteBuffer item) {
+            content.append(UTF_8.decode(item));
+        }
+
+        public void onError(Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+
+        public void onComplete() {
+            completed = true;
+        }
+
+        public String received() {
+            return content.toString();
+        }
+    }
+}
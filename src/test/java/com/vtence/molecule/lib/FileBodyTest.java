@@ -3,11 +3,15 @@ package com.vtence.molecule.lib;
 import com.vtence.molecule.Response;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
+import java.util.Arrays;
 
 import static com.vtence.molecule.testing.ResourceLocator.onClasspath;
 import static com.vtence.molecule.testing.ResponseAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -25,4 +29,23 @@ public class FileBodyTest {
                             .hasBodyContent(Files.readAllBytes(file.toPath()));
     }
 
-}
\ No newline at end of file
+    @Test public void
+    transfersEntireFileAsRegion() throws Exception {
+        FileBody body = new FileBody(file);
+        assertThat("to end of file", body.toEndOfFile(), equalTo(true));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.transferTo(Channels.newChannel(out));
+        assertThat("content", out.toByteArray(), equalTo(Files.readAllBytes(file.toPath())));
+    }
+
+    @Test public void
+    rendersRegionOfFile() throws Exception {
+        FileBody body = new FileBody(file, 100, 50);
+        assertThat("to end of file", body.toEndOfFile(), equalTo(false));
+
+        Response response = Response.ok().body(body);
+        assertThat(response).hasBodySize(50)
+                            .hasBodyContent(Arrays.copyOfRange(Files.readAllBytes(file.toPath()), 100, 150));
+    }
+}
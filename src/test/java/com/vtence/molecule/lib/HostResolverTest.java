@@ -0,0 +1,102 @@
+package com.vtence.molecule.lib;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+public class HostResolverTest {
+
+    List<Runnable> pending = new ArrayList<>();
+    Executor deferred = pending::add;
+    List<String> lookups = new ArrayList<>();
+    MutableClock clock = new MutableClock(Instant.parse("2026-10-18T12:00:00Z"));
+
+    HostResolver resolver = new HostResolver(deferred, Duration.ofMinutes(1), 2, clock) {
+        protected String reverseLookup(String ip) {
+            lookups.add(ip);
+            return "host-" + ip;
+        }
+    };
+
+    @Test
+    public void standsInWithIpAddressUntilNameIsResolved() {
+        assertThat("before resolution", resolver.lookup("10.0.0.1"), equalTo("10.0.0.1"));
+        runPending();
+        assertThat("after resolution", resolver.lookup("10.0.0.1"), equalTo("host-10.0.0.1"));
+        assertThat("lookups", lookups, contains("10.0.0.1"));
+    }
+
+    @Test
+    public void resolvesAgainOnceCachedNameExpires() {
+        resolver.lookup("10.0.0.1");
+        runPending();
+        clock.advance(Duration.ofMinutes(2));
+
+        resolver.lookup("10.0.0.1");
+        runPending();
+        assertThat("lookups", lookups, contains("10.0.0.1", "10.0.0.1"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedNamesWhenFull() {
+        resolver.lookup("10.0.0.1");
+        resolver.lookup("10.0.0.2");
+        resolver.lookup("10.0.0.1");
+        resolver.lookup("10.0.0.3");
+        runPending();
+
+        resolver.lookup("10.0.0.1");
+        resolver.lookup("10.0.0.2");
+        runPending();
+        assertThat("lookups", lookups, contains("10.0.0.1", "10.0.0.2", "10.0.0.3", "10.0.0.2"));
+    }
+
+    @Test
+    public void standsInWithIpAddressesOnceClosed() {
+        var resolver = HostResolver.create();
+        resolver.close();
+
+        assertThat("hostname", resolver.lookup("10.0.0.1"), equalTo("10.0.0.1"));
+        assertThat("resolved", resolver.resolve("10.0.0.2").isDone(), equalTo(true));
+    }
+
+    private void runPending() {
+        List<Runnable> tasks = new ArrayList<>(pending);
+        pending.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        public Instant instant() {
+            return now;
+        }
+    }
+}
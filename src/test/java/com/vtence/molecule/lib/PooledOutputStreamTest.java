@@ -0,0 +1,48 @@
+package com.vtence.molecule.lib;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class PooledOutputStreamTest {
+
+    BufferPool pool = new BufferPool(1, 2);
+    PooledOutputStream out = new PooledOutputStream(pool);
+
+    @Test public void
+    growsAsContentIsWritten() throws IOException {
+        byte[] content = "0123456789".repeat(1000).getBytes(UTF_8);
+        out.write(content);
+        out.write('!');
+
+        assertThat("size", out.size(), equalTo(10_001));
+        assertThat("content", out.toString(UTF_8), equalTo("0123456789".repeat(1000) + "!"));
+    }
+
+    @Test public void
+    readsAllContentOfInputStreams() throws IOException {
+        byte[] content = "0123456789".repeat(1000).getBytes(UTF_8);
+        out.readFrom(new ByteArrayInputStream(content));
+
+        assertThat("content", out.toByteArray(), equalTo(content));
+    }
+
+    @Test public void
+    givesBuffersBackToPoolWhenClosed() throws IOException {
+        out.write(new byte[10_000]);
+        out.close();
+
+        assertThat("outstanding", pool.outstandingBytes(), equalTo(0L));
+    }
+
+    @Test(expected = IOException.class) public void
+    cannotBeWrittenToOnceClosed() throws IOException {
+        out.close();
+        out.write('!');
+    }
+}
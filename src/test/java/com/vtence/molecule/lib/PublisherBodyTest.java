@@ -0,0 +1,99 @@
+package com.vtence.molecule.lib;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.fail;
+
+public class PublisherBodyTest {
+
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+    @Test public void
+    writesContentAsItIsPublished() throws Exception {
+        var publisher = new SubmissionPublisher<ByteBuffer>();
+        var body = PublisherBody.publishing(publisher);
+        assertThat("size", body.size(UTF_8), equalTo(-1L));
+
+        var transfer = body.transferTo(Channels.newChannel(content));
+        publisher.submit(ByteBuffer.wrap("Hello".getBytes(UTF_8)));
+        publisher.submit(ByteBuffer.wrap(", World".getBytes(UTF_8)));
+        publisher.close();
+
+        transfer.get(1, SECONDS);
+        assertThat("content", content.toString(UTF_8), equalTo("Hello, World"));
+    }
+
+    @Test public void
+    requestsMoreContentOnlyOnceWritten() {
+        var subscription = new CountingSubscription();
+        var subscribers = new ArrayList<Flow.Subscriber<? super ByteBuffer>>();
+        var body = PublisherBody.publishing(s -> {
+            subscribers.add(s);
+            s.onSubscribe(subscription);
+        });
+
+        body.transferTo(Channels.newChannel(content));
+        assertThat("requested on subscription", subscription.requested, equalTo(1L));
+
+        subscribers.get(0).onNext(ByteBuffer.wrap("content".getBytes(UTF_8)));
+        assertThat("requested once written", subscription.requested, equalTo(2L));
+    }
+
+    @Test public void
+    cancelsSubscriptionWhenWritingFails() throws Exception {
+        var subscription = new CountingSubscription();
+        var body = PublisherBody.publishing(s -> {
+            s.onSubscribe(subscription);
+            s.onNext(ByteBuffer.wrap("content".getBytes(UTF_8)));
+        });
+
+        var transfer = body.transferTo(new BrokenChannel());
+        assertThat("cancelled", subscription.cancelled, equalTo(true));
+        try {
+            transfer.get(1, SECONDS);
+            fail("transfer did not fail");
+        } catch (ExecutionException expected) {
+            assertThat("failure", expected.getCause(), instanceOf(IOException.class));
+        }
+    }
+
+    private static class CountingSubscription implements Flow.Subscription {
+        long requested;
+        boolean cancelled;
+
+        public void request(long n) {
+            requested += n;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static class BrokenChannel implements WritableByteChannel {
+        public int write(ByteBuffer src) throws IOException {
+            throw new IOException("Connection reset");
+        }
+
+        public boolean isOpen() {
+            return false;
+        }
+
+        public void close() {}
+    }
+}
@@ -0,0 +1,35 @@
+package com.vtence.molecule.lib;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static com.vtence.molecule.lib.ServerSentEvent.event;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ServerSentEventTest {
+
+    @Test public void
+    encodesDataOnlyEvents() {
+        assertThat("event", event("Hello").toString(), equalTo("data: Hello\n\n"));
+    }
+
+    @Test public void
+    encodesAllEventFields() {
+        var event = event("Hello").id("42").name("greeting").retry(Duration.ofSeconds(3));
+        assertThat("event", event.toString(), equalTo("id: 42\nevent: greeting\nretry: 3000\ndata: Hello\n\n"));
+    }
+
+    @Test public void
+    splitsMultilineDataIntoSeveralDataFields() {
+        assertThat("event", event("first\nsecond\r\nthird").toString(),
+                   equalTo("data: first\ndata: second\ndata: third\n\n"));
+    }
+
+    @Test public void
+    preventsFieldsFromBreakingOutOfTheirLine() {
+        assertThat("event", event("Hello").name("greeting\n\ndata: injected").toString(),
+                   equalTo("event: greetingdata: injected\ndata: Hello\n\n"));
+    }
+}
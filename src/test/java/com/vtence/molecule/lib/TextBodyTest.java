@@ -3,9 +3,16 @@ package com.vtence.molecule.lib;
 import com.vtence.molecule.Response;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
 import static com.vtence.molecule.testing.ResponseAssert.assertThat;
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
 
 public class TextBodyTest {
 
@@ -32,4 +39,34 @@ public class TextBodyTest {
         assertThat(response).hasBodyEncoding(UTF_8)
                             .hasBodySize(body.size(UTF_8));
     }
-}
\ No newline at end of file
+
+    @Test public void
+    exposesEncodedTextAsBuffers() throws Exception {
+        TextBody body = TextBody.text("De drôles d'œufs abîmés");
+        var channel = new ByteArrayOutputStream();
+        body.writeTo(Channels.newChannel(channel), UTF_8);
+        assertThat("content", channel.toString(UTF_8), equalTo("De drôles d'œufs abîmés"));
+    }
+
+    @Test public void
+    reencodesTextWhenMoreIsAppended() {
+        TextBody body = TextBody.text("De drôles");
+        assertThat("initial size", body.size(UTF_8), equalTo(10L));
+        body.append(" d'œufs");
+        assertThat("final size", body.size(UTF_8), equalTo(18L));
+    }
+
+    @Test public void
+    streamsLargeTextAsItEncodesIt() throws Exception {
+        String text = "De drôles d'œufs abîmés \uD83E\uDD5A ".repeat(5000);
+        TextBody body = TextBody.text(text);
+        assertThat("buffered", body.buffered(UTF_8), equalTo(false));
+
+        for (var charset : new Charset[] { UTF_8, ISO_8859_1, UTF_16 }) {
+            var out = new ByteArrayOutputStream();
+            body.writeTo(out, charset);
+            assertThat(charset + " size", body.size(charset), equalTo((long) text.getBytes(charset).length));
+            assertThat(charset + " content", out.toByteArray(), equalTo(text.getBytes(charset)));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.vtence.molecule.middlewares;
 import com.vtence.molecule.Request;
 import com.vtence.molecule.Response;
 import com.vtence.molecule.http.Uri;
+import com.vtence.molecule.lib.HostResolver;
 import com.vtence.molecule.support.LoggingSupport.LogRecordingHandler;
 import org.junit.Test;
 
@@ -93,4 +94,21 @@ public class ApacheCombinedLoggerTest {
 
         logRecords.assertEntries(contains(containsString("\"DELETE /logout HTTP/1.1\" 204 - \"http://lama/wool\" \"Mozilla/5.0...\"")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void
+    logsRemoteHostnamesWhenResolved() throws Exception {
+        HostResolver resolver = new HostResolver(Runnable::run, Duration.ofMinutes(5), 10) {
+            protected String reverseLookup(String ip) {
+                return "lama.example.com";
+            }
+        };
+        logger.resolveHostnames(resolver);
+        resolver.resolve("192.168.0.1");
+
+        logger.then(request -> Response.ok().done())
+              .handle(Request.get("/").remoteIp("192.168.0.1"));
+
+        logRecords.assertEntries(contains(containsString("lama.example.com - - ")));
+    }
+}
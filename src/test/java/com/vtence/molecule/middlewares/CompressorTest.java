@@ -8,14 +8,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 import static com.vtence.molecule.http.HttpStatus.NOT_ACCEPTABLE;
+import static com.vtence.molecule.testing.BodyContent.asBytes;
 import static com.vtence.molecule.testing.BodyContent.asStream;
 import static com.vtence.molecule.testing.ResponseAssert.assertThat;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 
 public class CompressorTest {
@@ -95,6 +98,18 @@ public class CompressorTest {
                             .hasBodyText("uncompressed body");
     }
 
+    @Test public void
+    tellsCachesThatResponsesVaryOnAcceptedEncodings() throws Exception {
+        Response response = compressor.then(request -> Response.ok()
+                                                               .header("Vary", "Accept-Language")
+                                                               .done("uncompressed body"))
+                                      .handle(Request.get("/")
+                                                     .header("Accept-Encoding", "compress"));
+
+        assertNoExecutionError(response);
+        assertThat(response).hasHeaders("Vary", contains("Accept-Language", "Accept-Encoding"));
+    }
+
     @Test public void
     preservesContentLengthOfIdentityResponses() throws Exception {
         Response response = compressor.then(request -> Response.ok()
@@ -202,6 +217,76 @@ public class CompressorTest {
         assertThat("body", unzip(response), equalTo("<html>uncompressed</html>"));
     }
 
+    @Test public void
+    leavesResponsesSmallerThanMinimumSizeUncompressed() throws Exception {
+        compressor.minimumSize(100);
+
+        Response response = compressor.then(request -> Response.ok()
+                                                               .done("uncompressed body"))
+                                      .handle(Request.get("/")
+                                                     .header("Accept-Encoding", "gzip"));
+
+        assertNoExecutionError(response);
+        assertThat(response).hasNoHeader("Content-Encoding")
+                            .hasBodyText("uncompressed body");
+    }
+
+    @Test public void
+    compressesWithLevelConfiguredForMediaType() throws Exception {
+        compressor.compressionLevel(9)
+                  .compressionLevel("text/*", 1);
+        String content = "uncompressed body, ".repeat(1000);
+
+        Response fast = compressor.then(request -> Response.ok()
+                                                           .contentType("text/plain")
+                                                           .done(content))
+                                  .handle(Request.get("/")
+                                                 .header("Accept-Encoding", "gzip"));
+        Response small = compressor.then(request -> Response.ok()
+                                                            .contentType("application/json")
+                                                            .done(content))
+                                   .handle(Request.get("/")
+                                                  .header("Accept-Encoding", "gzip"));
+
+        assertThat("fast body", unzip(fast), equalTo(content));
+        assertThat("small body", unzip(small), equalTo(content));
+        assertThat("faster compression is larger", asBytes(fast).length > asBytes(small).length, equalTo(true));
+    }
+
+    @Test public void
+    reusesDeflatersAcrossResponses() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            String content = "uncompressed body #" + i;
+            Response response = compressor.then(request -> Response.ok()
+                                                                   .done(content))
+                                          .handle(Request.get("/")
+                                                         .header("Accept-Encoding", i % 2 == 0 ? "gzip" : "deflate"));
+
+            assertThat("body", i % 2 == 0 ? unzip(response) : inflate(response), equalTo(content));
+        }
+    }
+
+    @Test public void
+    compressesLargeResponsesInParallel() throws Exception {
+        compressor.parallelAbove(0, new ForkJoinPool(2));
+        var content = new StringBuilder();
+        for (int line = 0; content.length() < 500_000; line++) {
+            content.append(line).append(": uncompressed body\n");
+        }
+
+        Response gzipped = compressor.then(request -> Response.ok()
+                                                              .done(content.toString()))
+                                     .handle(Request.get("/")
+                                                    .header("Accept-Encoding", "gzip"));
+        Response deflated = compressor.then(request -> Response.ok()
+                                                               .done(content.toString()))
+                                      .handle(Request.get("/")
+                                                     .header("Accept-Encoding", "deflate"));
+
+        assertThat("gzipped body", unzip(gzipped), equalTo(content.toString()));
+        assertThat("deflated body", inflate(deflated), equalTo(content.toString()));
+    }
+
     private String inflate(Response response) throws IOException {
         return response.empty() ? "" : toString(new InflaterInputStream(asStream(response), new Inflater(true)));
     }
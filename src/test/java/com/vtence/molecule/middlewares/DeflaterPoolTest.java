@@ -0,0 +1,34 @@
+package com.vtence.molecule.middlewares;
+
+import org.junit.Test;
+
+import java.util.zip.Deflater;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class DeflaterPoolTest {
+
+    DeflaterPool deflaters = new DeflaterPool(1);
+
+    @Test public void
+    reusesReleasedDeflaters() {
+        Deflater deflater = deflaters.acquire(Deflater.BEST_SPEED);
+        deflaters.release(deflater);
+
+        assertThat("reused", deflaters.acquire(Deflater.BEST_COMPRESSION), sameInstance(deflater));
+    }
+
+    @Test public void
+    keepsNoMoreDeflatersThanItsCapacity() {
+        Deflater first = deflaters.acquire(Deflater.DEFAULT_COMPRESSION);
+        Deflater second = deflaters.acquire(Deflater.DEFAULT_COMPRESSION);
+        assertThat("distinct", second, not(sameInstance(first)));
+
+        deflaters.release(first);
+        deflaters.release(second);
+        assertThat("idle", deflaters.idle(), equalTo(1));
+    }
+}
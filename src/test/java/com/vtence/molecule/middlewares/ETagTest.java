@@ -2,16 +2,24 @@ package com.vtence.molecule.middlewares;
 
 import com.vtence.molecule.Request;
 import com.vtence.molecule.Response;
+import com.vtence.molecule.lib.ChunkedBody;
+import com.vtence.molecule.lib.FileBody;
 import com.vtence.molecule.lib.TextBody;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.time.Instant;
 import java.util.concurrent.ExecutionException;
 
 import static com.vtence.molecule.http.HttpStatus.CREATED;
 import static com.vtence.molecule.http.HttpStatus.NOT_FOUND;
+import static com.vtence.molecule.testing.ResourceLocator.onClasspath;
 import static com.vtence.molecule.testing.ResponseAssert.assertThat;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 public class ETagTest {
@@ -123,11 +131,60 @@ public class ETagTest {
         assertThat("closed?", originalBody.closed, is(true));
     }
 
-    public static class CloseableBody extends TextBody {
+    @Test public void
+    hashesContentInMemoryWithoutCopyingIt() throws Exception {
+        TextBody body = new TextBody().append("response body");
+        Response response = etag.then(request -> Response.ok()
+                                                         .done(body))
+                                .handle(Request.get("/"));
+
+        assertNoExecutionError(response);
+        assertThat(response).hasHeader("ETag", "\"91090ad25c02ffd89cd46ae8b28fcdde\"");
+        assertThat("body", response.body(), sameInstance(body));
+    }
+
+    @Test public void
+    derivesETagOfFilesFromTheirSizeAndModificationTime() throws Exception {
+        File file = onClasspath().locate("assets/images/sample.png");
+        FileBody body = new FileBody(file);
+        Response response = etag.then(request -> Response.ok()
+                                                         .done(body))
+                                .handle(Request.get("/"));
+
+        assertNoExecutionError(response);
+        assertThat(response).hasHeader("ETag", "\"" + Long.toHexString(file.lastModified())
+                                               + "-" + Long.toHexString(file.length()) + "\"");
+        assertThat("body", response.body(), sameInstance(body));
+    }
+
+    @Test public void
+    computesETagWithGeneratorRegisteredForBodyType() throws Exception {
+        etag.generate(CloseableBody.class, (body, charset) -> "\"closeable\"");
+        Response response = etag.then(request -> Response.ok()
+                                                         .done(new CloseableBody()))
+                                .handle(Request.get("/"));
+
+        assertNoExecutionError(response);
+        assertThat(response).hasHeader("ETag", "\"closeable\"");
+    }
+
+    @Test public void
+    willNotReadContentLargerThanMaximumSize() throws Exception {
+        etag.maxSize(8);
+        Response response = etag.then(request -> Response.ok()
+                                                         .done("response body"))
+                                .handle(Request.get("/"));
+
+        assertNoExecutionError(response);
+        assertThat(response).hasNoHeader("ETag")
+                            .hasNoHeader("Cache-Control");
+    }
+
+    public static class CloseableBody extends ChunkedBody {
         public boolean closed;
 
-        public CloseableBody() {
-            append("Close me!");
+        public void writeTo(OutputStream out, Charset charset) throws IOException {
+            out.write("Close me!".getBytes(charset));
         }
 
         public void close() {
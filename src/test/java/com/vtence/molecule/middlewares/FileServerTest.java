@@ -7,15 +7,19 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
 
 import static com.vtence.molecule.http.HttpDate.format;
 import static com.vtence.molecule.http.HttpStatus.METHOD_NOT_ALLOWED;
 import static com.vtence.molecule.http.HttpStatus.NOT_FOUND;
 import static com.vtence.molecule.http.HttpStatus.NOT_MODIFIED;
 import static com.vtence.molecule.http.HttpStatus.OK;
+import static com.vtence.molecule.http.HttpStatus.PARTIAL_CONTENT;
+import static com.vtence.molecule.http.HttpStatus.RANGE_NOT_SATISFIABLE;
 import static com.vtence.molecule.testing.ResourceLocator.onClasspath;
 import static com.vtence.molecule.testing.ResponseAssert.assertThat;
 import static java.lang.String.valueOf;
+import static org.hamcrest.Matchers.startsWith;
 
 public class FileServerTest {
 
@@ -113,6 +117,92 @@ public class FileServerTest {
                             .isDone();
     }
 
+    @Test public void
+    advertisesSupportForRanges() throws Exception {
+        Response response = fileServer.handle(Request.get(SAMPLE_IMAGE));
+
+        assertThat(response).hasHeader("Accept-Ranges", "bytes");
+    }
+
+    @Test public void
+    servesRequestedRangeOfFile() throws Exception {
+        Response response = fileServer.handle(Request.get(SAMPLE_IMAGE).header("Range", "bytes=100-199"));
+
+        assertThat(response).hasStatus(PARTIAL_CONTENT)
+                            .hasHeader("Content-Range", "bytes 100-199/" + file.length())
+                            .hasHeader("Content-Length", "100")
+                            .hasBodyContent(Arrays.copyOfRange(contentOf(file), 100, 200))
+                            .isDone();
+    }
+
+    @Test public void
+    servesSeveralRangesAsMultipartContent() throws Exception {
+        Response response = fileServer.handle(Request.get(SAMPLE_IMAGE).header("Range", "bytes=0-1, 4-5"));
+
+        assertThat(response).hasStatus(PARTIAL_CONTENT)
+                            .hasContentType(startsWith("multipart/byteranges; boundary="))
+                            .hasHeader("Content-Length", valueOf(response.size()));
+        String boundary = response.contentType().substring(response.contentType().indexOf('=') + 1);
+        assertThat(response).hasBodyText(
+                "--" + boundary + "\r\n" +
+                "Content-Type: image/png\r\n" +
+                "Content-Range: bytes 0-1/" + file.length() + "\r\n" +
+                "\r\n" +
+                "\u0089P\r\n" +
+                "--" + boundary + "\r\n" +
+                "Content-Type: image/png\r\n" +
+                "Content-Range: bytes 4-5/" + file.length() + "\r\n" +
+                "\r\n" +
+                "\r\n\r\n" +
+                "--" + boundary + "--\r\n");
+    }
+
+    @Test public void
+    rejectsRangesThatCannotBeSatisfied() throws Exception {
+        Response response = fileServer.handle(Request.get(SAMPLE_IMAGE).header("Range", "bytes=999999-"));
+
+        assertThat(response).hasStatus(RANGE_NOT_SATISFIABLE)
+                            .hasHeader("Content-Range", "bytes */" + file.length())
+                            .hasBodySize(0)
+                            .isDone();
+    }
+
+    @Test public void
+    servesEntireFileIfItChangedSinceRangeWasRequested() throws Exception {
+        Response response = fileServer.handle(Request.get(SAMPLE_IMAGE)
+                                                     .header("Range", "bytes=100-199")
+                                                     .header("If-Range", format(file.lastModified() - 60_000)));
+
+        assertThat(response).hasStatus(OK)
+                            .hasBodySize(file.length());
+    }
+
+    @Test public void
+    servesPrecompressedFilesToClientsThatAcceptTheirEncoding() throws Exception {
+        fileServer.precompressed("br", "gzip");
+        File compressed = new File(base, "/css/style.css.gz");
+
+        Response response = fileServer.handle(Request.get("/css/style.css").header("Accept-Encoding", "gzip"));
+        assertThat(response).hasStatus(OK)
+                            .hasContentType("text/css")
+                            .hasHeader("Content-Encoding", "gzip")
+                            .hasHeader("Vary", "Accept-Encoding")
+                            .hasHeader("Content-Length", valueOf(compressed.length()))
+                            .hasBodyContent(contentOf(compressed));
+    }
+
+    @Test public void
+    servesOriginalFileWhenClientDoesNotAcceptPrecompressedEncodings() throws Exception {
+        fileServer.precompressed("gzip");
+        File original = new File(base, "/css/style.css");
+
+        Response response = fileServer.handle(Request.get("/css/style.css").header("Accept-Encoding", "br"));
+        assertThat(response).hasStatus(OK)
+                            .hasNoHeader("Content-Encoding")
+                            .hasHeader("Vary", "Accept-Encoding")
+                            .hasBodyContent(contentOf(original));
+    }
+
     private byte[] contentOf(final File file) throws IOException {
         return Files.readAllBytes(file.toPath());
     }
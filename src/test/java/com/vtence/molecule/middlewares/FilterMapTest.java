@@ -6,6 +6,7 @@ import com.vtence.molecule.Request;
 import com.vtence.molecule.Response;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -13,6 +14,8 @@ import static com.vtence.molecule.Middleware.identity;
 import static com.vtence.molecule.lib.predicates.Requests.*;
 import static com.vtence.molecule.testing.ResponseAssert.assertThat;
 import static java.lang.String.format;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
 
 public class FilterMapTest {
 
@@ -71,6 +74,34 @@ public class FilterMapTest {
         assertFilteredContent(response, "replacement(content)");
     }
 
+    @Test public void
+    appliesLastRegisteredMatchingFilterAcrossPathsAndConditions() throws Exception {
+        filters.map("/products/:number", filter("product"));
+        filters.map(withPath("/products/12345678"), filter("condition"));
+        filters.map("/products", filter("products"));
+
+        Application app = filters.then(stubResponse("content"));
+
+        assertFilteredContent(app.handle(Request.get("/products/12345678")), "products(content)");
+        assertFilteredContent(app.handle(Request.get("/productsX")), "content");
+        assertFilteredContent(app.handle(Request.get("/other")), "content");
+    }
+
+    @Test public void
+    composesFiltersOnlyOnce() throws Exception {
+        AtomicInteger compositions = new AtomicInteger();
+        filters.map("/filtered", next -> {
+            compositions.incrementAndGet();
+            return next;
+        });
+
+        Application app = filters.then(stubResponse("content"));
+        app.handle(Request.get("/filtered"));
+        app.handle(Request.get("/filtered/path"));
+
+        assertThat(compositions.get(), equalTo(1));
+    }
+
     private void assertFilteredContent(Response response, String content) {
         assertThat(response).hasHeader("content", content);
     }
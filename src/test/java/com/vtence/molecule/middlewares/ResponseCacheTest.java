@@ -0,0 +1,180 @@
+package com.vtence.molecule.middlewares;
+
+import com.vtence.molecule.Application;
+import com.vtence.molecule.Request;
+import com.vtence.molecule.Response;
+import com.vtence.molecule.lib.ChunkedBody;
+import com.vtence.molecule.support.Delorean;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.vtence.molecule.testing.BodyContent.asBytes;
+import static com.vtence.molecule.testing.ResponseAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ResponseCacheTest {
+
+    Delorean delorean = new Delorean();
+    ResponseCache cache = new ResponseCache(1024, delorean);
+
+    AtomicInteger renderings = new AtomicInteger();
+
+    @Test public void
+    replaysFreshResponsesWithoutCallingTheApplication() throws Exception {
+        var now = delorean.freeze();
+        var app = cache.then(counting("public, max-age=60"));
+
+        assertThat(app.handle(Request.get("/resource"))).hasBodyText("rendering #1");
+        delorean.freezeAt(now.plusSeconds(30));
+        var replayed = app.handle(Request.get("/resource"));
+
+        assertThat(replayed).hasStatusCode(200)
+                            .hasHeader("Cache-Control", "public, max-age=60")
+                            .hasHeader("Age", "30")
+                            .hasBodyText("rendering #1");
+        assertThat("hits", cache.hits(), equalTo(1L));
+    }
+
+    @Test public void
+    callsTheApplicationAgainOnceResponseIsStale() throws Exception {
+        var now = delorean.freeze();
+        var app = cache.then(counting("max-age=60"));
+
+        app.handle(Request.get("/resource"));
+        delorean.freezeAt(now.plusSeconds(60));
+
+        assertThat(app.handle(Request.get("/resource"))).hasBodyText("rendering #2");
+        assertThat("misses", cache.misses(), equalTo(2L));
+    }
+
+    @Test public void
+    computesFreshnessFromExpiresHeader() throws Exception {
+        var now = delorean.freeze();
+        var app = cache.then(request -> Response.ok()
+                                                .header("Expires", now.plusSeconds(10))
+                                                .done("rendering #" + renderings.incrementAndGet()));
+
+        app.handle(Request.get("/resource"));
+        assertThat(app.handle(Request.get("/resource"))).hasBodyText("rendering #1");
+        delorean.freezeAt(now.plusSeconds(10));
+        assertThat(app.handle(Request.get("/resource"))).hasBodyText("rendering #2");
+    }
+
+    @Test public void
+    neverKeepsResponsesThatForbidIt() throws Exception {
+        for (String directive : List.of("no-store", "no-cache", "private, max-age=60")) {
+            var app = cache.then(counting(directive));
+            app.handle(Request.get("/resource"));
+            app.handle(Request.get("/resource"));
+        }
+        assertThat("renderings", renderings.get(), equalTo(6));
+        assertThat("stored", cache.storedBytes(), equalTo(0L));
+    }
+
+    @Test public void
+    keepsOneVariantPerValueOfVaryingHeaders() throws Exception {
+        var app = cache.then(request -> Response.ok()
+                                                .header("Cache-Control", "max-age=60")
+                                                .header("Vary", "Accept-Language")
+                                                .done(request.header("Accept-Language") + " #"
+                                                      + renderings.incrementAndGet()));
+
+        app.handle(Request.get("/").header("Accept-Language", "fr"));
+        app.handle(Request.get("/").header("Accept-Language", "en"));
+
+        assertThat(app.handle(Request.get("/").header("Accept-Language", "fr"))).hasBodyText("fr #1");
+        assertThat(app.handle(Request.get("/").header("Accept-Language", "en"))).hasBodyText("en #2");
+    }
+
+    @Test public void
+    evictsLeastRecentlyUsedResponsesToStayWithinCapacity() throws Exception {
+        var app = cache.then(request -> Response.ok()
+                                                .header("Cache-Control", "max-age=60")
+                                                .done("x".repeat(400)));
+
+        app.handle(Request.get("/a"));
+        app.handle(Request.get("/b"));
+        app.handle(Request.get("/a"));
+        app.handle(Request.get("/c"));
+
+        assertThat("stored", cache.storedBytes() <= 1024, equalTo(true));
+        app.handle(Request.get("/a"));
+        app.handle(Request.get("/b"));
+        assertThat("hits", cache.hits(), equalTo(2L));
+    }
+
+    @Test public void
+    servesStaleResponsesWhileRefreshingInTheBackground() throws Exception {
+        List<Runnable> refreshes = new ArrayList<>();
+        cache.revalidateOn(refreshes::add);
+        var now = delorean.freeze();
+        var app = cache.then(counting("max-age=60, stale-while-revalidate=30"));
+
+        app.handle(Request.get("/resource"));
+        delorean.freezeAt(now.plusSeconds(70));
+
+        assertThat(app.handle(Request.get("/resource"))).hasBodyText("rendering #1");
+        assertThat(app.handle(Request.get("/resource"))).hasBodyText("rendering #1");
+        assertThat("refreshes", refreshes.size(), equalTo(1));
+
+        refreshes.get(0).run();
+        assertThat(app.handle(Request.get("/resource"))).hasBodyText("rendering #2")
+                                                        .hasHeader("Age", "0");
+    }
+
+    @Test public void
+    keepsCompressedAndUncompressedVariantsApart() throws Exception {
+        var app = new Compressor().then(counting("max-age=60"));
+        var cached = cache.then(app);
+
+        asBytes(cached.handle(Request.get("/resource").header("Accept-Encoding", "gzip")));
+        var uncompressed = cached.handle(Request.get("/resource"));
+        var compressed = cached.handle(Request.get("/resource").header("Accept-Encoding", "gzip"));
+
+        assertThat(uncompressed).hasNoHeader("Content-Encoding")
+                                .hasBodyText("rendering #2");
+        assertThat(compressed).hasHeader("Content-Encoding", "gzip");
+        assertThat("renderings", renderings.get(), equalTo(2));
+    }
+
+    @Test public void
+    sendsButDoesNotKeepContentOfUnknownSizeThatIsTooLarge() throws Exception {
+        var content = "x".repeat(2048);
+        var app = cache.then(request -> Response.ok()
+                                                .header("Cache-Control", "max-age=60")
+                                                .done(new ChunkedBody() {
+                                                    public void writeTo(OutputStream out, Charset charset) throws IOException {
+                                                        renderings.incrementAndGet();
+                                                        out.write(content.getBytes(charset));
+                                                    }
+                                                }));
+
+        assertThat(app.handle(Request.get("/resource"))).hasBodyText(content);
+        assertThat(app.handle(Request.get("/resource"))).hasBodyText(content);
+        assertThat("renderings", renderings.get(), equalTo(2));
+        assertThat("stored", cache.storedBytes(), equalTo(0L));
+    }
+
+    @Test public void
+    forgetsResourcesChangedByUnsafeRequests() throws Exception {
+        var app = cache.then(counting("max-age=60"));
+
+        app.handle(Request.get("/resource"));
+        app.handle(Request.post("/resource"));
+
+        assertThat(app.handle(Request.get("/resource"))).hasBodyText("rendering #3");
+    }
+
+    private Application counting(String cacheControl) {
+        return request -> Response.ok()
+                                  .header("Cache-Control", cacheControl)
+                                  .done("rendering #" + renderings.incrementAndGet());
+    }
+}
@@ -93,6 +93,15 @@ public class URLMapTest {
                             .hasBodyText("/foo/bar at /quux (/foo/bar/quux)");
     }
 
+    @Test
+    public void matchesMountPointsLiterally() throws Exception {
+        map.mount("/api/v1.0", describeMount());
+
+        assertThat(map.then(new NotFound()).handle(Request.get("/api/v1x0/users"))).hasStatus(NOT_FOUND);
+        assertThat(map.then(ok()).handle(Request.get("/api/v1.0/users"))).hasStatus(OK)
+                                                                         .hasBodyText("/api/v1.0 at /users (/api/v1.0/users)");
+    }
+
     private Application ok() {
         return request -> Response.ok().done();
     }
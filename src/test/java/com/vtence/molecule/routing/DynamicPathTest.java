@@ -9,6 +9,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
 
 public class DynamicPathTest {
 
@@ -57,4 +58,20 @@ public class DynamicPathTest {
         assertThat("bound parameters values", boundParameters.values(), hasSize(2));
         assertThat("bound parameters", boundParameters, allOf(hasEntry("number", "LAB-1234"), hasEntry("id", "12345678")));
     }
-}
\ No newline at end of file
+
+    @Test public void
+    matchesDynamicSegmentsAgainstTheirConstraints() {
+        DynamicPath dynamicPath = DynamicPath.equalTo("/products/:number{[A-Z]{3}-\\d+}/items/:id{int}");
+        assertThat("no match", dynamicPath.test("/products/LAB-1234/items/12345678"));
+        assertThat("match", !dynamicPath.test("/products/lab-1234/items/12345678"));
+        assertThat("match", !dynamicPath.test("/products/LAB-1234/items/latest"));
+    }
+
+    @Test public void
+    bindsParametersOnlyWhenPathMatches() {
+        DynamicPath dynamicPath = DynamicPath.equalTo("/products/:number/items/:id{uuid}");
+        assertThat("bound parameters", dynamicPath.bind("/products/LAB-1234/items/e4eaaaf2-d142-11e1-b3e4-080027620cdd"),
+                   allOf(hasEntry("number", "LAB-1234"), hasEntry("id", "e4eaaaf2-d142-11e1-b3e4-080027620cdd")));
+        assertThat("bound parameters", dynamicPath.bind("/products/LAB-1234/items/12345678"), nullValue());
+    }
+}
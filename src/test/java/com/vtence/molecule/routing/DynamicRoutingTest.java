@@ -8,8 +8,13 @@ import com.vtence.molecule.middlewares.Router;
 import org.junit.Test;
 
 import static com.vtence.molecule.http.HeaderNames.ACCEPT;
+import static com.vtence.molecule.http.HttpMethod.DELETE;
 import static com.vtence.molecule.http.HttpMethod.GET;
 import static com.vtence.molecule.http.HttpMethod.POST;
+import static com.vtence.molecule.http.HttpMethod.PUT;
+import static com.vtence.molecule.http.HttpStatus.METHOD_NOT_ALLOWED;
+import static com.vtence.molecule.http.HttpStatus.NOT_FOUND;
+import static com.vtence.molecule.http.HttpStatus.NO_CONTENT;
 import static com.vtence.molecule.lib.predicates.Requests.anything;
 import static com.vtence.molecule.routing.DynamicRoutingTest.Echo.echo;
 import static com.vtence.molecule.testing.ResponseAssert.assertThat;
@@ -95,6 +100,42 @@ public class DynamicRoutingTest {
         assertThat(router.handle(Request.get("/resource/42"))).hasBodyText("parameters {id=[42]}");
     }
 
+    @Test public void
+    rejectingMethodsNotAllowedOnPath() throws Exception {
+        Router router = Router.draw(new Routes() {{
+            get("/resource/:id").to(echo("get"));
+            map("/resource/:id").via(PUT, DELETE).to(echo("update"));
+        }});
+
+        assertThat(router.handle(Request.post("/resource/42"))).hasStatus(METHOD_NOT_ALLOWED)
+                                                               .hasHeader("Allow", "OPTIONS, GET, PUT, DELETE");
+        assertThat(router.handle(Request.post("/other"))).hasStatus(NOT_FOUND);
+    }
+
+    @Test public void
+    answeringOptionsWithMethodsAllowedOnPath() throws Exception {
+        Router router = Router.draw(new Routes() {{
+            get("/resource/:id").to(echo("get"));
+            post("/resource/:id").to(echo("post"));
+            options("/other").to(echo("options"));
+        }});
+
+        assertThat(router.handle(Request.options("/resource/42"))).hasStatus(NO_CONTENT)
+                                                                  .hasHeader("Allow", "OPTIONS, GET, POST");
+        assertThat(router.handle(Request.options("/other"))).hasBodyText("options");
+    }
+
+    @Test public void
+    leavingMethodsNotAllowedOnPathToFallback() throws Exception {
+        Router router = new Router(echo("fallback"));
+        new Routes() {{
+            get("/resource/:id").to(echo("get"));
+        }}.build(router);
+
+        assertThat(router.handle(Request.post("/resource/42"))).hasBodyText("fallback");
+        assertThat(router.handle(Request.options("/resource/42"))).hasBodyText("fallback");
+    }
+
     public static class Echo implements Application {
         private final String message;
 
@@ -0,0 +1,73 @@
+package com.vtence.molecule.routing;
+
+import com.vtence.molecule.Application;
+import com.vtence.molecule.Request;
+import com.vtence.molecule.Response;
+import org.junit.Test;
+
+import java.util.function.Predicate;
+
+import static com.vtence.molecule.lib.predicates.Requests.anything;
+import static com.vtence.molecule.routing.DynamicPath.equalTo;
+import static com.vtence.molecule.routing.DynamicPath.startingWith;
+import static com.vtence.molecule.testing.ResponseAssert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RouteIndexTest {
+
+    RouteIndex index = new RouteIndex();
+
+    @Test public void
+    findsRoutesByStaticAndDynamicSegments() throws Exception {
+        index.route(route(equalTo("/products"), "all products"))
+             .route(route(equalTo("/products/:id"), "product"))
+             .route(route(equalTo("/products/:id/reviews"), "reviews"))
+             .route(route(equalTo("/products/new"), "new product"));
+
+        assertThat(dispatch("/products")).hasBodyText("all products");
+        assertThat(dispatch("/products/42")).hasBodyText("product");
+        assertThat(dispatch("/products/42/reviews")).hasBodyText("reviews");
+        assertThat("found", index.route(Request.get("/products/42/photos")).isPresent(), is(false));
+    }
+
+    @Test public void
+    keepsFirstMatchingRouteAcrossBranches() throws Exception {
+        index.route(route(equalTo("/products/:id"), "product"))
+             .route(route(equalTo("/products/new"), "new product"));
+
+        assertThat(dispatch("/products/new")).hasBodyText("product");
+    }
+
+    @Test public void
+    matchesRoutesOnPathPrefixes() throws Exception {
+        index.route(route(startingWith("/admin"), "admin"))
+             .route(route(equalTo("/admin/users"), "users"));
+
+        assertThat(dispatch("/admin/users")).hasBodyText("admin");
+        assertThat(dispatch("/admin")).hasBodyText("admin");
+    }
+
+    @Test public void
+    triesOtherRoutesInTheOrderTheyWereAdded() throws Exception {
+        index.route(route("/products/42"::equals, "first"))
+             .route(route(equalTo("/products/:id"), "product"))
+             .route(route(path -> true, "last"));
+
+        assertThat(dispatch("/products/42")).hasBodyText("first");
+        assertThat(dispatch("/products/43")).hasBodyText("product");
+        assertThat(dispatch("/other")).hasBodyText("last");
+    }
+
+    private Route route(Predicate<? super String> path, String text) {
+        return new DynamicRoute(path, anything(), echo(text));
+    }
+
+    private Response dispatch(String path) throws Exception {
+        return index.route(Request.get(path)).orElseThrow().handle(Request.get(path));
+    }
+
+    private Application echo(String text) {
+        return request -> Response.ok().done(text);
+    }
+}
@@ -0,0 +1,121 @@
+package com.vtence.molecule.servers;
+
+import com.vtence.molecule.Body;
+import com.vtence.molecule.Response;
+import com.vtence.molecule.Server;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.Charset;
+
+import static com.vtence.molecule.testing.http.HttpResponseAssert.assertThat;
+import static java.net.http.HttpClient.Version.HTTP_1_1;
+import static java.net.http.HttpRequest.BodyPublishers.ofInputStream;
+import static java.net.http.HttpResponse.BodyHandlers.ofString;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class NioServerTest extends ServerCompatibilityTests {
+
+    protected Server createServer(String host, int port) {
+        return new NioServer(host, port);
+    }
+
+    @Test public void
+    sendsContentLengthOfSmallResponses() throws Exception {
+        server.start(request -> Response.ok().done("<html>...</html>"));
+
+        var response = client.send(request.version(HTTP_1_1).uri(server.uri()).build(), ofString());
+        assertNoError();
+        assertThat(response).hasBody("<html>...</html>")
+                            .hasHeader("Content-Length", "16")
+                            .isNotChunked();
+    }
+
+    @Test public void
+    sendsContentLengthOfInMemoryResponses() throws Exception {
+        var content = "a".repeat(100_000);
+        server.start(request -> Response.ok().done(content));
+
+        var response = client.send(request.version(HTTP_1_1).uri(server.uri()).build(), ofString());
+        assertNoError();
+        assertThat(response).hasBody(content)
+                            .hasHeader("Content-Length", "100000")
+                            .isNotChunked();
+    }
+
+    @Test public void
+    chunksLargeResponsesWhenContentLengthUnknown() throws Exception {
+        var content = "a".repeat(100_000);
+        server.start(request -> Response.ok().done(new Body() {
+            public long size(Charset charset) {
+                return -1;
+            }
+
+            public void writeTo(OutputStream out, Charset charset) throws IOException {
+                out.write(content.getBytes(charset));
+            }
+        }));
+
+        var response = client.send(request.version(HTTP_1_1).uri(server.uri()).build(), ofString());
+        assertNoError();
+        assertThat(response).hasBody(content)
+                            .isChunked();
+    }
+
+    @Test public void
+    readsChunkedRequestContent() throws Exception {
+        server.start(request -> Response.ok().done(request.body()));
+
+        var response = client.send(request.version(HTTP_1_1)
+                                          .uri(server.uri())
+                                          .POST(ofInputStream(() -> new ByteArrayInputStream("streamed".getBytes())))
+                                          .build(),
+                                   ofString());
+        assertNoError();
+        assertThat(response).hasBody("streamed");
+    }
+
+    @Test public void
+    closesConnectionWhenContinueIsExpectedButBodyIsIgnored() throws Exception {
+        server.start(request -> Response.ok().done("ignored"));
+
+        var response = exchange("POST / HTTP/1.1\r\n" +
+                                "Host: localhost\r\n" +
+                                "Content-Length: 10\r\n" +
+                                "Expect: 100-continue\r\n" +
+                                "\r\n");
+        assertNoError();
+        assertThat("response", response, startsWith("HTTP/1.1 200 OK"));
+        assertThat("response", response, containsString("Connection: close"));
+        assertThat("response", response, not(containsString("100 Continue")));
+    }
+
+    @Test public void
+    rejectsFormsThatAreTooLarge() throws Exception {
+        server.start(request -> Response.ok().done(String.valueOf(request.parameters("name").size())));
+
+        var response = exchange("POST / HTTP/1.1\r\n" +
+                                "Host: localhost\r\n" +
+                                "Content-Type: application/x-www-form-urlencoded\r\n" +
+                                "Content-Length: 100000000\r\n" +
+                                "\r\n");
+        assertNoError();
+        assertThat("response", response, startsWith("HTTP/1.1 413 Payload Too Large"));
+    }
+
+    // Sends the request and reads the response until the server closes the connection
+    private String exchange(String request) throws IOException {
+        try (var socket = new Socket(server.uri().getHost(), server.uri().getPort())) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(request.getBytes(ISO_8859_1));
+            return new String(socket.getInputStream().readAllBytes(), ISO_8859_1);
+        }
+    }
+}
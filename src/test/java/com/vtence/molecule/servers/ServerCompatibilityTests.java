@@ -14,22 +14,33 @@ import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.vtence.molecule.http.HttpStatus.CREATED;
+import static com.vtence.molecule.lib.PublisherBody.publishing;
 import static com.vtence.molecule.ssl.KeyStoreType.DEFAULT;
 import static com.vtence.molecule.ssl.SecureProtocol.TLS;
 import static com.vtence.molecule.testing.ResourceLocator.locateOnClasspath;
 import static com.vtence.molecule.testing.http.HttpResponseAssert.assertThat;
 import static com.vtence.molecule.testing.http.HttpResponseThat.contentEncodedWithCharset;
 import static java.lang.String.valueOf;
+import static java.net.http.HttpClient.Version.HTTP_1_1;
 import static java.net.http.HttpRequest.BodyPublishers.ofString;
 import static java.net.http.HttpResponse.BodyHandlers.discarding;
 import static java.net.http.HttpResponse.BodyHandlers.ofString;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.CompletableFuture.runAsync;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.hasItems;
@@ -310,6 +321,23 @@ public abstract class ServerCompatibilityTests {
         assertThat(response).hasBody("[Alice, Bob, Charles]");
     }
 
+    @Test public void
+    readsFormParametersOnceBodyHasBeenRead() throws Exception {
+        server.start(request -> {
+            request.bodyStream().readAllBytes();
+            return Response.ok().done(request.parameter("name"));
+        });
+
+        var response = client.send(request.uri(server.uri())
+                                          .header("Content-Type", Form.urlEncoded().contentType())
+                                          .POST(Form.urlEncoded().addField("name", "value"))
+                                          .build(),
+                                   ofString());
+
+        assertNoError();
+        assertThat(response).hasBody("value");
+    }
+
     @Test public void
     readsMultiPartFormParameters() throws Exception {
         var parameters = new HashMap<String, String>();
@@ -380,6 +408,102 @@ public abstract class ServerCompatibilityTests {
                 hasEntry("secure", "true")));
     }
 
+    @Test public void
+    streamsContentAsItIsPublished() throws Exception {
+        var content = "content ".repeat(20_000);
+        server.start(request -> Response.ok().done(publishing(BodyPublishers.ofString(content))));
+
+        var response = client.send(request.uri(server.uri()).build(), ofString());
+        assertNoError();
+        assertThat(response).hasBody(content);
+    }
+
+    @Test public void
+    abortsResponsesWhenPublishingFails() throws Exception {
+        server.start(request -> Response.ok().done(publishing(subscriber -> subscriber.onSubscribe(
+                new Flow.Subscription() {
+                    boolean published;
+
+                    public void request(long n) {
+                        if (published) {
+                            subscriber.onError(new Exception("Publishing failed"));
+                        } else {
+                            published = true;
+                            subscriber.onNext(ByteBuffer.wrap("partial content".getBytes(UTF_8)));
+                        }
+                    }
+
+                    public void cancel() {}
+                }))));
+
+        try {
+            client.send(request.version(HTTP_1_1).uri(server.uri()).build(), ofString());
+            fail("incomplete content received as complete");
+        } catch (IOException expected) {
+            assertThat("reported failure", error.getMessage(), equalTo("Publishing failed"));
+        }
+    }
+
+    @Test public void
+    neverSubscribesToPublishedContentThatCannotBeSent() throws Exception {
+        var subscribed = new AtomicBoolean();
+        server.start(request -> Response.ok().done(publishing(subscriber -> subscribed.set(true))));
+
+        var response = client.send(request.uri(server.uri())
+                                          .method("HEAD", BodyPublishers.noBody())
+                                          .timeout(Duration.ofSeconds(5))
+                                          .build(),
+                                   discarding());
+        assertNoError();
+        assertThat(response).isOK();
+        assertThat("subscribed", subscribed.get(), equalTo(false));
+    }
+
+    @Test public void
+    completesInFlightRequestsBeforeShuttingDown() throws Exception {
+        var response = Response.ok();
+        server.start(request -> response);
+
+        var reply = client.sendAsync(request.uri(server.uri()).build(), ofString());
+        while (server.inFlightRequests() == 0) Thread.sleep(10);
+
+        var stopped = runAsync(() -> {
+            try {
+                server.stop(Duration.ofSeconds(5));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertThat("stopped", stopped.isDone(), equalTo(false));
+
+        response.done("completed");
+        assertThat(reply.get()).hasBody("completed");
+        stopped.get();
+        assertNoError();
+        assertThat("in-flight requests", server.inFlightRequests(), equalTo(0));
+    }
+
+    @Test public void
+    processesRequestsWithProvidedExecutor() throws Exception {
+        var executor = Executors.newSingleThreadExecutor(task -> new Thread(task, "custom-worker"));
+        try {
+            server.executor(executor)
+                  .start(request -> Response.ok().done(Thread.currentThread().getName()));
+
+            // Forms are read in blocking mode, so they are handed over to workers in every dispatch mode
+            var response = client.send(request.uri(server.uri())
+                                              .header("Content-Type", Form.urlEncoded().contentType())
+                                              .POST(Form.urlEncoded().addField("name", "value"))
+                                              .build(),
+                                       ofString());
+            assertNoError();
+            assertThat(response).hasBody("custom-worker");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private SSLContext setupSSL() {
         System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
         try {
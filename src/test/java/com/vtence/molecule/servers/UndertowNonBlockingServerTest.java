@@ -0,0 +1,106 @@
+package com.vtence.molecule.servers;
+
+import com.vtence.molecule.Body;
+import com.vtence.molecule.Response;
+import com.vtence.molecule.Server;
+import com.vtence.molecule.lib.FileBody;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import static com.vtence.molecule.testing.http.HttpResponseAssert.assertThat;
+import static java.net.http.HttpResponse.BodyHandlers.ofString;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class UndertowNonBlockingServerTest extends ServerCompatibilityTests {
+
+    protected Server createServer(String host, int port) {
+        return new UndertowServer(host, port);
+    }
+
+    @Before public void
+    dispatchRequestsOnIoThreads() {
+        server.enableNonBlocking();
+    }
+
+    @Test public void
+    writesResponsesCompletedFromOtherThreads() throws Exception {
+        server.start(request -> {
+            Response response = Response.ok();
+            runAsync(() -> response.done("<html>...</html>"));
+            return response;
+        });
+
+        var response = client.send(request.uri(server.uri()).build(), ofString());
+        assertNoError();
+        assertThat(response).hasBody("<html>...</html>")
+                            .hasHeader("Content-Length", "16")
+                            .isNotChunked();
+    }
+
+    @Test public void
+    sendsFileRegionsThatSpanSeveralChunks() throws Exception {
+        var content = "0123456789abcdef".repeat(16 * 1024);
+        var file = Files.createTempFile("region", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(US_ASCII));
+        server.start(request -> Response.ok().done(new FileBody(file.toFile(), 1000, 150_000)));
+
+        var response = client.send(request.uri(server.uri()).build(), ofString());
+        assertNoError();
+        assertThat(response).hasBody(content.substring(1000, 151_000))
+                            .hasHeader("Content-Length", "150000");
+    }
+
+    @Test public void
+    leavesWritingOfStreamedContentToWorkers() throws Exception {
+        server.start(request -> Response.ok().done(new Body() {
+            public long size(Charset charset) {
+                return -1;
+            }
+
+            public void writeTo(OutputStream out, Charset charset) throws IOException {
+                out.write(Thread.currentThread().getName().getBytes(charset));
+            }
+        }));
+
+        var response = client.send(request.uri(server.uri()).build(), ofString());
+        assertNoError();
+        assertThat("writing thread", response.body(), not(containsString("I/O")));
+    }
+
+    @Test public void
+    rejectsContentOfUnknownLengthThatIsTooLarge() throws Exception {
+        server.start(request -> Response.ok().done(request.body()));
+
+        var content = "a".repeat(2 * 1024 * 1024 + 1);
+        var response = exchange("POST / HTTP/1.1\r\n" +
+                                "Host: localhost\r\n" +
+                                "Transfer-Encoding: chunked\r\n" +
+                                "\r\n" +
+                                Integer.toHexString(content.length()) + "\r\n" +
+                                content);
+        assertNoError();
+        assertThat("response", response, startsWith("HTTP/1.1 413 Payload Too Large"));
+    }
+
+    // Sends the request and reads the response until the server closes the connection
+    private String exchange(String request) throws IOException {
+        try (var socket = new Socket(server.uri().getHost(), server.uri().getPort())) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(request.getBytes(ISO_8859_1));
+            return new String(socket.getInputStream().readAllBytes(), ISO_8859_1);
+        }
+    }
+}